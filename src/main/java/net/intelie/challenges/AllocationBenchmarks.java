@@ -0,0 +1,117 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Garbage left by the hot paths, meant to be run with {@code -prof gc}: {@code gc.alloc.rate.norm} should stay
+ * close to 0 B/op for both insert and iteration.
+ * <p>
+ * The events are created before the measurement, so they are not counted against the operations, and the
+ * stores are kept at a stable size, so the lists do not grow.
+ */
+@Fork(1)
+public class AllocationBenchmarks {
+    private static final String TYPE = "type 1";
+    private static final int EVENTS = 1_000_000;
+
+    /**
+     * A window of the latest events, its size kept stable by an iterator that removes the oldest one for each
+     * event appended. The events are taken from a pool created beforehand, started over when it runs out.
+     */
+    @State(Scope.Thread)
+    public static class Window {
+        @Param({"SYNCH", "OPTIMISTIC"})
+        public Benchmarks.Implementation implementation;
+
+        @Param({"1000"})
+        public int window;
+
+        /*
+         * Milliseconds between events. A second apart, the window spans several rollup buckets, so the oldest
+         * event is discounted from a bucket other than the one counting the newest.
+         */
+        @Param({"1", "1000"})
+        public long spacing;
+
+        EventStore store;
+        Event[] pool;
+        int next;
+        EventIterator oldest;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            store = implementation.create();
+            pool = new Event[EVENTS];
+            for (int i = 0; i < EVENTS; i++) {
+                pool[i] = new Event(TYPE, i * spacing);
+            }
+            restart();
+        }
+
+        /**
+         * Empties the store and starts the pool over. Allocates a single iterator, once every pool.
+         */
+        void restart() {
+            if (oldest != null) {
+                while (oldest.moveNext()) {
+                    oldest.remove();
+                }
+            }
+            for (next = 0; next < window; next++) {
+                store.insert(pool[next]);
+            }
+            oldest = store.query(TYPE, 0, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Appends an event and removes the oldest one.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Event insert(Window state) {
+        if (state.next == EVENTS) {
+            state.restart();
+        }
+        state.store.insert(state.pool[state.next++]);
+        state.oldest.moveNext();
+        Event removed = state.oldest.current();
+        state.oldest.remove();
+        return removed;
+    }
+
+    @State(Scope.Thread)
+    public static class Populated {
+        @Param({"SYNCH", "OPTIMISTIC"})
+        public Benchmarks.Implementation implementation;
+
+        EventStore store;
+        EventIterator iterator;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            store = implementation.create();
+            for (int i = 0; i < EVENTS; i++) {
+                store.insert(new Event(TYPE, i));
+            }
+            iterator = store.query(TYPE, 0, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * One step of an iterator, started again when it reaches the end.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Event iterate(Populated state) {
+        if (!state.iterator.moveNext()) {
+            state.iterator = state.store.query(TYPE, 0, Long.MAX_VALUE);
+            return null;
+        }
+        return state.iterator.current();
+    }
+}
@@ -1,7 +1,19 @@
 package net.intelie.challenges;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks with the usual JMH command line options, writing the results as JSON to
+ * {@code target/jmh-result.json} unless another result format is given with {@code -rf}.
+ */
 public class BenchmarkRunner {
     public static void main(String[] args) throws Exception {
-        org.openjdk.jmh.Main.main(args);
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.addAll(Arrays.asList("-rf", "json", "-rff", "target/jmh-result.json"));
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
     }
 }
@@ -2,90 +2,359 @@ package net.intelie.challenges;
 
 import net.intelie.challenges.exploration.EventStoreOptimistic;
 import net.intelie.challenges.exploration.EventStoreRW;
-import org.openjdk.jmh.annotations.Benchmark;
-import org.openjdk.jmh.annotations.Fork;
-import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.IntStream;
 
+/**
+ * Throughput of the store implementations over pre-populated stores.
+ * <p>
+ * Every benchmark runs against a store holding {@code events} events spread over {@code types} types, a
+ * fraction {@code outOfOrder} of them arriving late. Run them with {@link BenchmarkRunner}, for example
+ * {@code Benchmarks.iterate -p implementation=SYNCH,SEGMENTED -t 4}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
 public class Benchmarks {
 
-    private void run(EventStore store, int writers, int readers) throws InterruptedException {
-        ExecutorService executorService = Executors.newFixedThreadPool(writers + readers);
-
-        IntStream
-                .rangeClosed(0, writers)
-                .forEach(w -> {
-                    executorService.execute(() -> {
-                        IntStream
-                                .rangeClosed(w*100, w*100 + 100)
-                                .forEach(timestamp -> store.insert(new Event("type 1", timestamp)));
-                    });
-                });
-
-        IntStream
-                .rangeClosed(0, readers)
-                .forEach(timestamp -> {
-                    executorService.execute(() -> {
-                        EventIterator eventIterator = store.query("type 1", 0, writers*100);
-                        while (eventIterator.moveNext()) {
-                            Event event = eventIterator.current();
-                        }
-                    });
-                });
-
-        executorService.shutdown();
-        executorService.awaitTermination(10, TimeUnit.SECONDS);
+    /**
+     * How far in the past, in timestamps, a late event may arrive.
+     */
+    private static final int MAX_DELAY = 1000;
+
+    public enum Implementation {
+        SYNCH {
+            @Override
+            EventStore create() {
+                return new EventStoreSynch();
+            }
+        },
+        LOCKED {
+            @Override
+            EventStore create() {
+                return new EventStoreLocked();
+            }
+        },
+        RW {
+            @Override
+            EventStore create() {
+                return new EventStoreRW();
+            }
+        },
+        RW_UNFAIR {
+            @Override
+            EventStore create() {
+                return new EventStoreRW(false);
+            }
+        },
+        OPTIMISTIC {
+            @Override
+            EventStore create() {
+                return new EventStoreOptimistic();
+            }
+        },
+        SEGMENTED {
+            @Override
+            EventStore create() {
+                return new EventStoreSegmented();
+            }
+        },
+        SKIP_LIST {
+            @Override
+            EventStore create() {
+                return new EventStoreSkipList();
+            }
+        },
+        COLUMNAR {
+            @Override
+            EventStore create() {
+                return new EventStoreColumnar();
+            }
+        },
+        MAPPED {
+            @Override
+            EventStore create() {
+                try {
+                    return new EventStoreMapped(Files.createTempDirectory("mapped"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        },
+        /**
+         * Synch shards by type. Synch already locks each type on its own, so this only measures the routing.
+         */
+        SHARDED_TYPE {
+            @Override
+            EventStore create() {
+                return new ShardedEventStore(4, EventStoreSynch::new);
+            }
+        },
+        /**
+         * Synch shards by time, each range as wide as a query window. The writers all insert near the newest
+         * timestamp, so they mostly meet in the shard owning it.
+         */
+        SHARDED_TIME {
+            @Override
+            EventStore create() {
+                return new ShardedEventStore(4, EventStoreSynch::new, ShardedEventStore.Partitioning.TIME_RANGE, 1000);
+            }
+        };
+
+        abstract EventStore create();
+    }
+
+    static String type(int index) {
+        return "type " + index;
+    }
+
+    /**
+     * Timestamps mostly ascending, a fraction of them delayed by up to {@link #MAX_DELAY}.
+     */
+    static long timestamp(long sequence, double outOfOrder, Random random) {
+        if (random.nextDouble() < outOfOrder) {
+            return Math.max(0, sequence - random.nextInt(MAX_DELAY));
+        }
+        return sequence;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Populated {
+        @Param
+        public Implementation implementation;
+
+        @Param({"100000"})
+        public int events;
+
+        @Param({"1", "16"})
+        public int types;
+
+        @Param({"0", "0.1"})
+        public double outOfOrder;
+
+        @Param({"1000"})
+        public int window;
+
+        EventStore store;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            store = implementation.create();
+            Random random = new Random(42);
+            for (int i = 0; i < events; i++) {
+                store.insert(new Event(type(i % types), timestamp(i, outOfOrder, random)));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            if (store instanceof Closeable) {
+                ((Closeable) store).close();
+            }
+        }
+    }
+
+    /**
+     * Per thread generator of new events, continuing after the populated ones.
+     */
+    @State(Scope.Thread)
+    public static class Writer {
+        private Random random;
+        private long sequence;
+        private int threads;
+
+        @Setup(Level.Trial)
+        public void init(Populated populated, ThreadParams threadParams) {
+            random = new Random(threadParams.getThreadIndex());
+            threads = threadParams.getThreadCount();
+            sequence = populated.events + threadParams.getThreadIndex();
+        }
+
+        Event next(Populated populated) {
+            sequence += threads;
+            return new Event(type((int) (sequence % populated.types)), timestamp(sequence, populated.outOfOrder, random));
+        }
+    }
+
+    /**
+     * Per thread generator of query windows inside the populated range.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+        private Random random;
+
+        @Setup(Level.Trial)
+        public void init(ThreadParams threadParams) {
+            random = new Random(~threadParams.getThreadIndex());
+        }
+
+        EventIterator query(Populated populated) {
+            long start = start(populated);
+            return populated.store.query(type(random.nextInt(populated.types)), start, start + populated.window);
+        }
+
+        long count(Populated populated) {
+            long start = start(populated);
+            return populated.store.count(type(random.nextInt(populated.types)), start, start + populated.window);
+        }
+
+        long[] histogram(Populated populated) {
+            long start = start(populated);
+            return populated.store.histogram(type(random.nextInt(populated.types)), start, start + populated.window, populated.window / 10);
+        }
+
+        private long start(Populated populated) {
+            return random.nextInt(Math.max(1, populated.events - populated.window));
+        }
+    }
+
+    /**
+     * Per thread choice between writing and reading, writing with probability {@code writerRatio}.
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+        @Param({"0.1", "0.5"})
+        public double writerRatio;
+
+        private Random random;
+
+        @Setup(Level.Trial)
+        public void init(ThreadParams threadParams) {
+            random = new Random(threadParams.getThreadIndex() * 31L);
+        }
+
+        boolean writes() {
+            return random.nextDouble() < writerRatio;
+        }
+    }
+
+    private static void consume(EventIterator eventIterator, Blackhole blackhole) {
+        while (eventIterator.moveNext()) {
+            blackhole.consume(eventIterator.current());
+        }
+    }
+
+    @Benchmark
+    public void insert(Populated populated, Writer writer) {
+        populated.store.insert(writer.next(populated));
+    }
+
+    /**
+     * Cost of opening a query and positioning it on its first event.
+     */
+    @Benchmark
+    public boolean querySetup(Populated populated, Reader reader) {
+        return reader.query(populated).moveNext();
+    }
+
+    /**
+     * Cost of reading a whole query window.
+     */
+    @Benchmark
+    public void iterate(Populated populated, Reader reader, Blackhole blackhole) {
+        consume(reader.query(populated), blackhole);
     }
 
     @Benchmark
-    @Fork(value = 1, warmups = 0)
-    @Warmup(iterations = 0)
-    public void synch() throws InterruptedException {
-        EventStore store = new EventStoreSynch();
-        run(store, 10, 10);
+    public long count(Populated populated, Reader reader) {
+        return reader.count(populated);
     }
 
+    /**
+     * Ten buckets per query window.
+     */
     @Benchmark
-    @Fork(value = 1, warmups = 0)
-    @Warmup(iterations = 0)
-    public void synchWithFewWriters() throws InterruptedException {
-        EventStore store = new EventStoreSynch();
-        run(store, 2, 10);
+    public long[] histogram(Populated populated, Reader reader) {
+        return reader.histogram(populated);
     }
 
     @Benchmark
-    @Fork(value = 1, warmups = 0)
-    @Warmup(iterations = 0)
-    public void rw() throws InterruptedException {
-        EventStore store = new EventStoreRW();
-        run(store, 10, 10);
+    @Threads(4)
+    public void mixed(Populated populated, Worker worker, Writer writer, Reader reader, Blackhole blackhole) {
+        if (worker.writes()) {
+            populated.store.insert(writer.next(populated));
+        }
+        else {
+            consume(reader.query(populated), blackhole);
+        }
     }
 
     @Benchmark
-    @Fork(value = 1, warmups = 0)
-    @Warmup(iterations = 0)
-    public void rwWithFewWriters() throws InterruptedException {
-        EventStore store = new EventStoreRW();
-        run(store, 2, 10);
+    @Group("balanced")
+    @GroupThreads(2)
+    public void balancedWriter(Populated populated, Writer writer) {
+        populated.store.insert(writer.next(populated));
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(2)
+    public void balancedReader(Populated populated, Reader reader, Blackhole blackhole) {
+        consume(reader.query(populated), blackhole);
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public void readHeavyWriter(Populated populated, Writer writer) {
+        populated.store.insert(writer.next(populated));
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(7)
+    public void readHeavyReader(Populated populated, Reader reader, Blackhole blackhole) {
+        consume(reader.query(populated), blackhole);
+    }
+
+    /**
+     * A batch of events of a few types, out of order.
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+        @Param({"SYNCH", "RW", "OPTIMISTIC"})
+        public Implementation implementation;
+
+        @Param({"10000"})
+        public int size;
+
+        private final List<Event> events = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void create() {
+            Random random = new Random(42);
+            for (int i = 0; i < size; i++) {
+                events.add(new Event(type(i % 4), random.nextInt(size * 10)));
+            }
+        }
     }
 
     @Benchmark
-    @Fork(value = 1, warmups = 0)
-    @Warmup(iterations = 0)
-    public void optimistic() throws InterruptedException {
-        EventStore store = new EventStoreOptimistic();
-        run(store, 10, 10);
+    public EventStore singleInserts(Batch batch) {
+        EventStore store = batch.implementation.create();
+        for (Event event : batch.events) {
+            store.insert(event);
+        }
+        return store;
     }
 
     @Benchmark
-    @Fork(value = 1, warmups = 0)
-    @Warmup(iterations = 0)
-    public void optimmisticWithFewWriters() throws InterruptedException {
-        EventStore store = new EventStoreOptimistic();
-        run(store, 2, 10);
+    public EventStore insertAll(Batch batch) {
+        EventStore store = batch.implementation.create();
+        store.insertAll(batch.events);
+        return store;
     }
 }
@@ -0,0 +1,423 @@
+package net.intelie.challenges;
+
+import java.util.Arrays;
+
+/**
+ * Events of a single type stored as columns of primitives, sorted by timestamp.
+ * <p>
+ * No {@link Event} is kept, they are created on demand from the columns. Payloads are encoded in a
+ * {@link PayloadArena}, the column keeping only their offsets.
+ * <p>
+ * The most recent timestamps are kept as they are, in the tail. Once it holds two blocks worth of them, the
+ * older half is sealed in a {@link TimestampBlock}, compressed. Events arriving late, older than the tail, are
+ * inserted in the block covering their timestamp, which is decoded and encoded again. Blocks split when they
+ * grow too big and merge into a neighbour when removals leave them too small. Indexes are over all the events,
+ * blocks first, then the tail.
+ * <p>
+ * Not thread-safe, callers synchronize on the instance itself.
+ */
+final class ColumnarEvents {
+    static final int BLOCK_SIZE = 1024;
+    private static final int MAX_BLOCK_SIZE = 2 * BLOCK_SIZE;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final EventType type;
+
+    private TimestampBlock[] blocks = new TimestampBlock[INITIAL_CAPACITY];
+    /* index of the first event of each block */
+    private int[] blockStarts = new int[INITIAL_CAPACITY];
+    private int blockCount;
+    private int sealedSize;
+
+    /* never older than the last block */
+    private long[] tail = new long[INITIAL_CAPACITY];
+    private int tailSize;
+
+    private int[] payloads = new int[INITIAL_CAPACITY];
+    private PayloadArena arena = new PayloadArena(true);
+
+    private long version;
+    private long payloadVersion;
+    private boolean dropped;
+
+    ColumnarEvents(String type) {
+        this.type = TypeDictionary.intern(type);
+    }
+
+    EventType type() {
+        return type;
+    }
+
+    int size() {
+        return sealedSize + tailSize;
+    }
+
+    /**
+     * @return the offset of the payload in {@link #payloadBytes()}, {@link PayloadCodec#NO_PAYLOAD} if it has none.
+     */
+    int payload(int index) {
+        return payloads[index];
+    }
+
+    /**
+     * Never changed once returned, so payloads may be decoded from it outside the lock.
+     */
+    byte[] payloadBytes() {
+        return arena.bytes();
+    }
+
+    String[] payloadStrings() {
+        return arena.strings();
+    }
+
+    /**
+     * Incremented whenever the arena is compacted, changing the offsets of the payloads.
+     */
+    long payloadVersion() {
+        return payloadVersion;
+    }
+
+    /**
+     * @return bytes taken by the encoded payloads, including the ones of removed events not compacted yet.
+     */
+    int payloadSize() {
+        return arena.size();
+    }
+
+    /**
+     * @return the memory used by the timestamps, as estimated for a 64 bit JVM.
+     */
+    long timestampBytes() {
+        long bytes = 8L * tail.length;
+        for (int i = 0; i < blockCount; i++) {
+            bytes += blocks[i].bytes();
+        }
+        return bytes;
+    }
+
+    int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Incremented on every modification, so iterators can tell if their cached position is still valid.
+     */
+    long version() {
+        return version;
+    }
+
+    boolean isDropped() {
+        return dropped;
+    }
+
+    /**
+     * Blocks entirely older than {@code timestamp} are skipped by their headers, only one is decoded.
+     */
+    int lowerBound(long timestamp) {
+        int block = firstBlockAfter(timestamp, false);
+        if (block == blockCount) {
+            return sealedSize + Timestamps.lowerBound(tail, tailSize, timestamp);
+        }
+        return blockStarts[block] + blocks[block].lowerBound(timestamp);
+    }
+
+    /**
+     * @param strictly whether the maximum of the block must be greater than {@code timestamp}, instead of
+     *                 greater or equal.
+     * @return the first block with such maximum, {@link #blockCount} if there is none.
+     */
+    private int firstBlockAfter(long timestamp, boolean strictly) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            long max = blocks[mid].max();
+            if (max < timestamp || strictly && max == timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the block holding the event at {@code index}, which must be sealed.
+     */
+    private int blockOf(int index) {
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blockStarts[mid] <= index) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return false if these events were dropped by a {@link EventStore#removeAll}.
+     */
+    boolean insert(long timestamp, Payload payload) {
+        if (dropped) {
+            return false;
+        }
+
+        int index;
+        if (blockCount == 0 || timestamp >= blocks[blockCount - 1].max()) {
+            int i = Timestamps.upperBound(tail, tailSize, timestamp);
+            if (tailSize == tail.length) {
+                tail = Arrays.copyOf(tail, tailSize + (tailSize >> 1));
+            }
+            System.arraycopy(tail, i, tail, i + 1, tailSize - i);
+            tail[i] = timestamp;
+            tailSize++;
+            index = sealedSize + i;
+        }
+        else {
+            index = insertSealed(timestamp);
+        }
+
+        int size = size();
+        if (size > payloads.length) {
+            payloads = Arrays.copyOf(payloads, payloads.length + (payloads.length >> 1));
+        }
+        System.arraycopy(payloads, index, payloads, index + 1, size - 1 - index);
+        payloads[index] = arena.append(payload);
+
+        if (tailSize == MAX_BLOCK_SIZE) {
+            seal();
+        }
+        version++;
+        return true;
+    }
+
+    private int insertSealed(long timestamp) {
+        int block = firstBlockAfter(timestamp, true);
+        TimestampBlock old = blocks[block];
+        long[] timestamps = new long[old.size() + 1];
+        old.decode(timestamps);
+        int i = Timestamps.upperBound(timestamps, old.size(), timestamp);
+        System.arraycopy(timestamps, i, timestamps, i + 1, old.size() - i);
+        timestamps[i] = timestamp;
+
+        for (int b = block + 1; b < blockCount; b++) {
+            blockStarts[b]++;
+        }
+        if (timestamps.length <= MAX_BLOCK_SIZE) {
+            blocks[block] = TimestampBlock.encode(timestamps, 0, timestamps.length);
+        }
+        else {
+            int half = timestamps.length / 2;
+            blocks[block] = TimestampBlock.encode(timestamps, 0, half);
+            addBlock(block + 1, TimestampBlock.encode(timestamps, half, timestamps.length - half),
+                    blockStarts[block] + half);
+        }
+        sealedSize++;
+        return blockStarts[block] + i;
+    }
+
+    private void addBlock(int at, TimestampBlock block, int start) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+            blockStarts = Arrays.copyOf(blockStarts, blockCount * 2);
+        }
+        System.arraycopy(blocks, at, blocks, at + 1, blockCount - at);
+        System.arraycopy(blockStarts, at, blockStarts, at + 1, blockCount - at);
+        blocks[at] = block;
+        blockStarts[at] = start;
+        blockCount++;
+    }
+
+    /**
+     * Compresses the older half of the tail, so late events still find the newer half uncompressed.
+     */
+    private void seal() {
+        addBlock(blockCount, TimestampBlock.encode(tail, 0, BLOCK_SIZE), sealedSize);
+        System.arraycopy(tail, BLOCK_SIZE, tail, 0, tailSize - BLOCK_SIZE);
+        tailSize -= BLOCK_SIZE;
+        sealedSize += BLOCK_SIZE;
+    }
+
+    void remove(int index) {
+        int size = size();
+        arena.release(payloads[index]);
+        System.arraycopy(payloads, index + 1, payloads, index, size - index - 1);
+
+        if (index >= sealedSize) {
+            int i = index - sealedSize;
+            System.arraycopy(tail, i + 1, tail, i, tailSize - i - 1);
+            tailSize--;
+        }
+        else {
+            removeSealed(index);
+        }
+
+        if (arena.compact(payloads, size - 1)) {
+            payloadVersion++;
+        }
+        version++;
+    }
+
+    private void removeSealed(int index) {
+        int block = blockOf(index);
+        TimestampBlock old = blocks[block];
+        for (int b = block + 1; b < blockCount; b++) {
+            blockStarts[b]--;
+        }
+        sealedSize--;
+        if (old.size() == 1) {
+            removeBlock(block);
+            return;
+        }
+
+        long[] timestamps = new long[old.size()];
+        old.decode(timestamps);
+        int i = index - blockStarts[block];
+        System.arraycopy(timestamps, i + 1, timestamps, i, old.size() - i - 1);
+        int size = old.size() - 1;
+
+        int neighbour = mergeNeighbour(block, size);
+        if (neighbour < 0) {
+            blocks[block] = TimestampBlock.encode(timestamps, 0, size);
+            return;
+        }
+        long[] merged = new long[size + blocks[neighbour].size()];
+        if (neighbour < block) {
+            blocks[neighbour].decode(merged);
+            System.arraycopy(timestamps, 0, merged, merged.length - size, size);
+        }
+        else {
+            long[] next = new long[blocks[neighbour].size()];
+            blocks[neighbour].decode(next);
+            System.arraycopy(timestamps, 0, merged, 0, size);
+            System.arraycopy(next, 0, merged, size, next.length);
+        }
+        int first = Math.min(block, neighbour);
+        blocks[first] = TimestampBlock.encode(merged, 0, merged.length);
+        removeBlock(first + 1);
+    }
+
+    /**
+     * Blocks left with less than a quarter of {@link #BLOCK_SIZE} events are merged into the smaller of their
+     * neighbours, so removals don't leave many tiny blocks, each with its own header, behind.
+     *
+     * @return the block to merge with, -1 if none.
+     */
+    private int mergeNeighbour(int block, int size) {
+        if (size >= BLOCK_SIZE / 4) {
+            return -1;
+        }
+        int neighbour = block > 0 ? block - 1 : -1;
+        if (block + 1 < blockCount && (neighbour < 0 || blocks[block + 1].size() < blocks[neighbour].size())) {
+            neighbour = block + 1;
+        }
+        return neighbour >= 0 && blocks[neighbour].size() + size <= MAX_BLOCK_SIZE ? neighbour : -1;
+    }
+
+    private void removeBlock(int at) {
+        System.arraycopy(blocks, at + 1, blocks, at, blockCount - at - 1);
+        System.arraycopy(blockStarts, at + 1, blockStarts, at, blockCount - at - 1);
+        blocks[--blockCount] = null;
+    }
+
+    void drop() {
+        dropped = true;
+        blocks = new TimestampBlock[0];
+        blockStarts = new int[0];
+        blockCount = 0;
+        sealedSize = 0;
+        tail = new long[0];
+        tailSize = 0;
+        payloads = new int[0];
+        arena = new PayloadArena(true);
+        version++;
+    }
+
+    /**
+     * Reads timestamps by index, decoding a block once while the indexes read stay in it. Each iterator has its
+     * own, used holding the lock of the events.
+     */
+    static final class Reader implements TimestampColumn {
+        private final ColumnarEvents events;
+        private long[] decoded;
+        private TimestampBlock block;
+        private int blockIndex;
+        private int start;
+
+        Reader(ColumnarEvents events) {
+            this.events = events;
+        }
+
+        @Override
+        public int size() {
+            return events.size();
+        }
+
+        @Override
+        public int lowerBound(long timestamp) {
+            return events.lowerBound(timestamp);
+        }
+
+        @Override
+        public long version() {
+            return events.version();
+        }
+
+        @Override
+        public void remove(int index) {
+            events.remove(index);
+        }
+
+        @Override
+        public int payload(int index) {
+            return events.payload(index);
+        }
+
+        @Override
+        public long payloadVersion() {
+            return events.payloadVersion();
+        }
+
+        @Override
+        public byte[] payloadBytes() {
+            return events.payloadBytes();
+        }
+
+        @Override
+        public String[] payloadStrings() {
+            return events.payloadStrings();
+        }
+
+        @Override
+        public long timestamp(int index) {
+            if (index >= events.sealedSize) {
+                return events.tail[index - events.sealedSize];
+            }
+            if (!holds(index)) {
+                blockIndex = events.blockOf(index);
+                block = events.blocks[blockIndex];
+                start = events.blockStarts[blockIndex];
+                if (decoded == null || decoded.length < block.size()) {
+                    decoded = new long[Math.max(block.size(), BLOCK_SIZE)];
+                }
+                block.decode(decoded);
+            }
+            return decoded[index - start];
+        }
+
+        /*
+         * Blocks never change, so the decoded one is still valid if it is still at the same place.
+         */
+        private boolean holds(int index) {
+            return block != null && index >= start && index < start + block.size()
+                    && blockIndex < events.blockCount && events.blocks[blockIndex] == block
+                    && events.blockStarts[blockIndex] == start;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Costs of removing events through iterators: throughput of bulk deletes, and the latency readers see while
+ * the {@link EventStoreSegmented} compacts the segments left with tombstones.
+ */
+@Fork(1)
+public class DeleteBenchmarks {
+
+    /**
+     * A store populated before each measurement, so every bulk delete starts from the same events.
+     */
+    @State(Scope.Benchmark)
+    public static class Populated {
+        @Param({"SYNCH", "SEGMENTED", "SKIP_LIST", "COLUMNAR"})
+        public Benchmarks.Implementation implementation;
+
+        @Param({"100000"})
+        public int events;
+
+        EventStore store;
+
+        @Setup(Level.Iteration)
+        public void populate() {
+            store = implementation.create();
+            Random random = new Random(42);
+            for (int i = 0; i < events; i++) {
+                store.insert(new Event("type 1", Benchmarks.timestamp(i, 0.1, random)));
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            if (store instanceof Closeable) {
+                ((Closeable) store).close();
+            }
+        }
+    }
+
+    /**
+     * Removes every other event of the store through a single iterator.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 10)
+    public int deleteHalf(Populated populated) {
+        int removed = 0;
+        EventIterator eventIterator = populated.store.query("type 1", 0, Long.MAX_VALUE);
+        while (eventIterator.moveNext()) {
+            if (removed++ % 2 == 0) {
+                eventIterator.remove();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * A segmented store under constant deletes and appends, its size kept stable.
+     */
+    @State(Scope.Group)
+    public static class Churn {
+        @Param({"0.1", "0.5", "1"})
+        public double compactionThreshold;
+
+        @Param({"100000"})
+        public int events;
+
+        @Param({"1000"})
+        public int window;
+
+        EventStoreSegmented store;
+        final AtomicLong sequence = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void populate() {
+            store = new EventStoreSegmented(1024, compactionThreshold);
+            for (int i = 0; i < events; i++) {
+                store.insert(new Event("type 1", i));
+            }
+            sequence.set(events);
+        }
+
+        long start(Random random) {
+            long last = sequence.get();
+            return last - events + random.nextInt(Math.max(1, events - window));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Randomness {
+        Random random;
+
+        @Setup(Level.Trial)
+        public void init(ThreadParams threadParams) {
+            random = new Random(threadParams.getThreadIndex());
+        }
+    }
+
+    /**
+     * Removes the first event of a random window and appends a new one.
+     */
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(2)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void churnDeleter(Churn churn, Randomness randomness) {
+        long start = churn.start(randomness.random);
+        EventIterator eventIterator = churn.store.query("type 1", start, start + churn.window);
+        if (eventIterator.moveNext()) {
+            eventIterator.remove();
+        }
+        churn.store.insert(new Event("type 1", churn.sequence.getAndIncrement()));
+    }
+
+    /**
+     * Latency of reading a window while segments are compacted.
+     */
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(2)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void churnReader(Churn churn, Randomness randomness, Blackhole blackhole) {
+        long start = churn.start(randomness.random);
+        EventIterator eventIterator = churn.store.query("type 1", start, start + churn.window);
+        while (eventIterator.moveNext()) {
+            blackhole.consume(eventIterator.current());
+        }
+    }
+}
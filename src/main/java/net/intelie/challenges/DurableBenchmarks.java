@@ -0,0 +1,97 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Costs of the {@link DurableEventStore}: latency of an insert waiting for its group commit, and time to
+ * recover a store from its log.
+ */
+public class DurableBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class LoggedStore {
+        private final AtomicLong timestamp = new AtomicLong();
+        private Path directory;
+        private DurableEventStore store;
+
+        @Setup(Level.Trial)
+        public void open() throws IOException {
+            directory = Files.createTempDirectory("durable");
+            store = new DurableEventStore(new EventStoreSynch(), directory.resolve("events.log"));
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            store.close();
+            delete(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Log {
+        @Param({"100000", "1000000"})
+        public int events;
+
+        @Param({"1", "4"})
+        public int recoveryThreads;
+
+        private Path directory;
+        private Path log;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            directory = Files.createTempDirectory("durable");
+            log = directory.resolve("events.log");
+            /*
+             * Appending without waiting for each record lets the log be written in large batches.
+             */
+            try (WriteAheadLog writer = WriteAheadLog.open(log, record -> {})) {
+                for (int i = 0; i < events; i++) {
+                    writer.append(new LogRecord(LogRecord.INSERT, "type " + i % 16, i));
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            DurableBenchmarks.delete(directory);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        Files.walk(directory)
+                .sorted((a, b) -> b.compareTo(a))
+                .forEach(path -> path.toFile().delete());
+    }
+
+    /**
+     * Each thread waits for its own insert to be durable, so the score is the group commit latency.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(8)
+    @Fork(value = 1, warmups = 0)
+    @Warmup(iterations = 1)
+    public void groupCommit(LoggedStore state) {
+        state.store.insert(new Event("type " + Thread.currentThread().getId() % 16, state.timestamp.incrementAndGet()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, warmups = 0)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public EventStore recovery(Log state) throws IOException {
+        EventStore store = new EventStoreSynch();
+        new DurableEventStore(store, state.log, state.recoveryThreads).close();
+        return store;
+    }
+}
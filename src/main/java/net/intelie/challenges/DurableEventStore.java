@@ -0,0 +1,265 @@
+package net.intelie.challenges;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * EventStore decorator making every change durable in a {@link WriteAheadLog} before returning.
+ * <p>
+ * On creation the log is replayed into the decorated store, so it should start empty. The log is read
+ * sequentially while its records are applied in parallel, by threads each owning a share of the types,
+ * which keeps the order of the operations of each type.
+ * <p>
+ * The operations of a type are logged and applied holding the same lock, one of {@link #STRIPES} locks,
+ * so the order in the log is the order they were applied.
+ */
+public class DurableEventStore implements EventStore, Closeable {
+
+    private static final int STRIPES = 64;
+    private static final int RECOVERY_QUEUE_SIZE = 1024;
+    private static final LogRecord END_OF_LOG = new LogRecord((byte) 0, "", 0);
+
+    private final EventStore store;
+    private final WriteAheadLog log;
+    private final Object[] stripes = new Object[STRIPES];
+
+    public DurableEventStore(EventStore store, Path log) throws IOException {
+        this(store, log, Runtime.getRuntime().availableProcessors());
+    }
+
+    public DurableEventStore(EventStore store, Path log, int recoveryThreads) throws IOException {
+        this.store = store;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.log = recover(store, log, recoveryThreads);
+    }
+
+    private static WriteAheadLog recover(EventStore store, Path file, int threads) throws IOException {
+        List<BlockingQueue<LogRecord>> queues = new ArrayList<>(threads);
+        List<Future<?>> appliers = new ArrayList<>(threads);
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                BlockingQueue<LogRecord> queue = new ArrayBlockingQueue<>(RECOVERY_QUEUE_SIZE);
+                queues.add(queue);
+                appliers.add(executorService.submit(() -> {
+                    /*
+                     * Keeps taking records after a failure, so the reader is never blocked on a full queue.
+                     */
+                    RuntimeException failure = null;
+                    LogRecord record;
+                    while ((record = queue.take()) != END_OF_LOG) {
+                        if (failure == null) {
+                            try {
+                                record.apply(store);
+                            } catch (RuntimeException e) {
+                                failure = e;
+                            }
+                        }
+                    }
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    return null;
+                }));
+            }
+
+            WriteAheadLog log = WriteAheadLog.open(file, record -> put(queues.get(owner(record.type, threads)), record));
+            for (BlockingQueue<LogRecord> queue : queues) {
+                put(queue, END_OF_LOG);
+            }
+            for (Future<?> applier : appliers) {
+                applier.get();
+            }
+            return log;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while recovering " + file, e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to recover " + file, e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static void put(BlockingQueue<LogRecord> queue, LogRecord record) {
+        try {
+            queue.put(record);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while recovering", e);
+        }
+    }
+
+    private static int owner(String type, int count) {
+        return Math.floorMod(type.hashCode(), count);
+    }
+
+    private Object stripe(String type) {
+        return stripes[owner(type, STRIPES)];
+    }
+
+    @Override
+    public void insert(Event event) {
+        long sequence;
+        synchronized (stripe(event.type())) {
+            sequence = log.append(
+                    new LogRecord(LogRecord.INSERT, event.type(), event.timestamp(), event.payload()));
+            store.insert(event);
+        }
+        log.awaitDurable(sequence);
+    }
+
+    /**
+     * Logs and applies the batch one type at a time, then waits once for all of it to be durable.
+     */
+    @Override
+    public void insertAll(Collection<Event> batch) {
+        long sequence = 0;
+        for (Map.Entry<String, List<Event>> group : SortedEvents.groupByType(batch).entrySet()) {
+            synchronized (stripe(group.getKey())) {
+                for (Event event : group.getValue()) {
+                    sequence = log.append(
+                            new LogRecord(LogRecord.INSERT, event.type(), event.timestamp(), event.payload()));
+                }
+                store.insertAll(group.getValue());
+            }
+        }
+        log.awaitDurable(sequence);
+    }
+
+    @Override
+    public void removeAll(String type) {
+        long sequence;
+        synchronized (stripe(type)) {
+            sequence = log.append(new LogRecord(LogRecord.REMOVE_ALL, type, 0));
+            store.removeAll(type);
+        }
+        log.awaitDurable(sequence);
+    }
+
+    @Override
+    public EventIterator query(String type, long startTime, long endTime) {
+        return new DurableEventIterator(store.query(type, startTime, endTime));
+    }
+
+    /**
+     * Read only, so it goes straight to the decorated store, which may count without iterating.
+     */
+    @Override
+    public long count(String type, long startTime, long endTime) {
+        return store.count(type, startTime, endTime);
+    }
+
+    @Override
+    public long[] histogram(String type, long startTime, long endTime, long bucketWidth) {
+        return store.histogram(type, startTime, endTime, bucketWidth);
+    }
+
+    /**
+     * Streams can't remove events, so nothing needs to be logged.
+     */
+    @Override
+    public Stream<Event> stream(String type, long startTime, long endTime) {
+        return store.stream(type, startTime, endTime);
+    }
+
+    /**
+     * Waits for the pending records to be written and closes the log. The decorated store is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private class DurableEventIterator implements EventIterator {
+        private final EventIterator eventIterator;
+
+        DurableEventIterator(EventIterator eventIterator) {
+            this.eventIterator = eventIterator;
+        }
+
+        @Override
+        public boolean moveNext() {
+            return eventIterator.moveNext();
+        }
+
+        @Override
+        public Event current() {
+            return eventIterator.current();
+        }
+
+        @Override
+        public long currentTimestamp() {
+            return eventIterator.currentTimestamp();
+        }
+
+        /**
+         * Logged only if the event was still there, so replaying the log does not remove another event with the
+         * same timestamp. The counts are stable since every change of the type holds the same lock. The record
+         * keeps the payload and the position of the event among the ones with its timestamp, so replaying it
+         * removes this very event.
+         */
+        @Override
+        public void remove() {
+            Event event = eventIterator.current();
+            long sequence;
+            synchronized (stripe(event.type())) {
+                int ordinal = ordinal(event);
+                long before = store.count(event.type(), event.timestamp(), event.timestamp() + 1);
+                eventIterator.remove();
+                if (store.count(event.type(), event.timestamp(), event.timestamp() + 1) == before) {
+                    return;
+                }
+                sequence = log.append(
+                        new LogRecord(LogRecord.REMOVE, event.type(), event.timestamp(), event.payload(), ordinal));
+            }
+            log.awaitDurable(sequence);
+        }
+
+        /**
+         * @return the position of the event among the ones with its timestamp, found by identity or, in stores
+         * creating their events on demand, as the first equal one; -1 if it is not there.
+         */
+        private int ordinal(Event event) {
+            if (event.timestamp() == Long.MAX_VALUE) {
+                return -1;
+            }
+            int equal = -1;
+            try (EventIterator sameTimestamp = store.query(event.type(), event.timestamp(), event.timestamp() + 1)) {
+                for (int i = 0; sameTimestamp.moveNext(); i++) {
+                    Event candidate = sameTimestamp.current();
+                    if (candidate == event) {
+                        return i;
+                    }
+                    if (equal < 0 && candidate.payload().equals(event.payload())) {
+                        equal = i;
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return equal;
+        }
+
+        @Override
+        public void close() throws Exception {
+            eventIterator.close();
+        }
+    }
+}
@@ -1,22 +1,81 @@
 package net.intelie.challenges;
 
+import java.util.Objects;
+
 /**
  * This is just an event stub, feel free to expand it if needed.
+ * <p>
+ * The type is interned in the {@link TypeDictionary} only when its id is first asked for, by the stores that index
+ * their events by type id, so events of a type share it there. The dictionary never forgets a type and holds at
+ * most {@link TypeDictionary#MAX_TYPES}: past that, those stores reject events of new types with an
+ * {@link IllegalStateException}, while creating events and the other stores are not affected.
+ * The {@link Payload} is optional, {@link Payload#EMPTY} when not given.
  */
 public class Event {
     private final String type;
+    /* interned on demand, racing threads get the same instance */
+    private EventType eventType;
     private final long timestamp;
+    private final Payload payload;
 
+    /**
+     * @throws NullPointerException if the type is null.
+     */
     public Event(String type, long timestamp) {
-        this.type = type;
+        this(type, timestamp, Payload.EMPTY);
+    }
+
+    /**
+     * @throws NullPointerException if the type is null.
+     */
+    public Event(String type, long timestamp, Payload payload) {
+        this.type = Objects.requireNonNull(type, "type");
+        this.timestamp = timestamp;
+        this.payload = payload != null ? payload : Payload.EMPTY;
+    }
+
+    /**
+     * Skips the lookup of the type name.
+     */
+    public Event(EventType type, long timestamp) {
+        this(type, timestamp, Payload.EMPTY);
+    }
+
+    public Event(EventType type, long timestamp, Payload payload) {
+        this.type = type.name();
+        this.eventType = type;
         this.timestamp = timestamp;
+        this.payload = payload != null ? payload : Payload.EMPTY;
     }
 
     public String type() {
         return type;
     }
 
+    /**
+     * @throws IllegalStateException if the type was never interned and the dictionary is full.
+     */
+    public EventType eventType() {
+        EventType eventType = this.eventType;
+        if (eventType == null) {
+            eventType = TypeDictionary.intern(type);
+            this.eventType = eventType;
+        }
+        return eventType;
+    }
+
+    /**
+     * @throws IllegalStateException if the type was never interned and the dictionary is full.
+     */
+    public int typeId() {
+        return eventType().id();
+    }
+
     public long timestamp() {
         return timestamp;
     }
+
+    public Payload payload() {
+        return payload;
+    }
 }
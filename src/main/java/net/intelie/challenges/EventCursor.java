@@ -0,0 +1,98 @@
+package net.intelie.challenges;
+
+import java.util.List;
+
+/**
+ * Position of an iterator over a list of events sorted by timestamp, shared by the list based iterators.
+ * <p>
+ * The position is the index of the current event, checked against the event itself: while it is still there,
+ * the next one is right after it. Otherwise the list changed, and the current event is searched again among the
+ * ones with its timestamp. Events with the same timestamp are told apart by identity, so none of them is skipped
+ * or repeated. Nothing is allocated.
+ * <p>
+ * The methods reading the list only compute positions, the cursor changes only on {@link #moveTo} and
+ * {@link #markRemoved}, so readers may retry a read without undoing anything. Callers guard the list.
+ */
+public final class EventCursor {
+    private Event current;
+    private int index;
+    private boolean removed;
+    /*
+     * How many events with the timestamp of the current one were returned before it and not removed through this
+     * cursor, so the position can be found again if the current event is removed by someone else.
+     */
+    private int returnedBefore;
+
+    public Event current() {
+        return current;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return where the event after the current one is, or would be, or the first event at or after
+     * {@code startTime} if there is no current event yet.
+     */
+    public int nextPosition(List<Event> events, long startTime) {
+        if (current == null) {
+            return SortedEvents.lowerBound(events, startTime);
+        }
+        if (!removed && index < events.size() && events.get(index) == current) {
+            return index + 1;
+        }
+
+        long timestamp = current.timestamp();
+        int first = SortedEvents.lowerBound(events, timestamp);
+        int i = first;
+        while (i < events.size() && events.get(i).timestamp() == timestamp) {
+            if (events.get(i) == current) {
+                return i + 1;
+            }
+            i++;
+        }
+        /* removed, skip the ones with the same timestamp returned before it */
+        return Math.min(i, first + returnedBefore);
+    }
+
+    /**
+     * @return the index of the current event, -1 if it is no longer in the list.
+     */
+    public int indexOfCurrent(List<Event> events) {
+        if (index < events.size() && events.get(index) == current) {
+            return index;
+        }
+        long timestamp = current.timestamp();
+        for (int i = SortedEvents.lowerBound(events, timestamp);
+             i < events.size() && events.get(i).timestamp() == timestamp; i++) {
+            if (events.get(i) == current) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Makes the event at {@code position} the current one.
+     */
+    public void moveTo(Event event, int position) {
+        if (current != null && event.timestamp() == current.timestamp()) {
+            returnedBefore += removed ? 0 : 1;
+        }
+        else {
+            returnedBefore = 0;
+        }
+        current = event;
+        index = position;
+        removed = false;
+    }
+
+    /**
+     * The current event was removed through this cursor, at its last known index.
+     */
+    public void markRemoved(int position) {
+        removed = true;
+        index = position;
+    }
+}
@@ -20,6 +20,16 @@ public interface EventIterator extends AutoCloseable {
      */
     Event current();
 
+    /**
+     * Gets the timestamp of the current event, without creating the event in stores that keep none.
+     *
+     * @throws IllegalStateException if {@link #moveNext} was never called
+     *                               or its last result was {@code false}.
+     */
+    default long currentTimestamp() {
+        return current().timestamp();
+    }
+
     /**
      * Remove current event from its store.
      *
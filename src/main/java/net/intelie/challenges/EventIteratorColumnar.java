@@ -0,0 +1,94 @@
+package net.intelie.challenges;
+
+public class EventIteratorColumnar implements EventIterator {
+    private final ColumnarEvents events;
+    private final ColumnarEvents.Reader timestamps;
+    private final long startTime;
+    private final long endTime;
+
+    private final TimestampCursor cursor = new TimestampCursor();
+    private Event current;
+    private boolean started = false;
+    private boolean eof = false;
+
+    EventIteratorColumnar(ColumnarEvents events, long startTime, long endTime) {
+        this.events = events;
+        this.timestamps = events != null ? new ColumnarEvents.Reader(events) : null;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    @Override
+    public boolean moveNext() {
+        started = true;
+        if (events == null || eof) {
+            eof = true;
+            return false;
+        }
+
+        synchronized (events) {
+            int next = cursor.nextPosition(timestamps, startTime);
+            if (next < timestamps.size() && timestamps.timestamp(next) < endTime) {
+                cursor.moveTo(timestamps, next);
+                current = null;
+                return true;
+            }
+        }
+
+        eof = true;
+        return false;
+    }
+
+    /**
+     * The arena never changes bytes already written, so the payload is decoded only if asked, without the lock, from
+     * where it was when the event was found.
+     */
+    @Override
+    public Event current() {
+        checkConditions();
+
+        if (current == null) {
+            current = new Event(events.type(), cursor.timestamp(),
+                    PayloadCodec.decode(cursor.payloadBytes(), cursor.payload(), cursor.payloadStrings()));
+        }
+        return current;
+    }
+
+    /**
+     * Neither creates the event nor decodes its payload.
+     */
+    @Override
+    public long currentTimestamp() {
+        checkConditions();
+
+        return cursor.timestamp();
+    }
+
+    @Override
+    public void remove() {
+        checkConditions();
+
+        if (cursor.isRemoved()) {
+            return;
+        }
+
+        synchronized (events) {
+            cursor.removeCurrent(timestamps);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+
+    }
+
+    private void checkConditions() {
+        if (!started) {
+            throw new IllegalStateException("moveNext() was never called");
+        }
+
+        if (eof) {
+            throw new IllegalStateException("no more events");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package net.intelie.challenges;
+
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Iterator over the sorted events of a type of an {@link EventStoreLocked}, locking them on each step.
+ * <p>
+ * The position is kept by an {@link EventCursor}, so nothing is allocated while iterating.
+ */
+public class EventIteratorLocked implements EventIterator {
+    private final Lock lock;
+    private final List<Event> events;
+    private final long startTime;
+    private final long endTime;
+
+    private final EventCursor cursor = new EventCursor();
+    private boolean started = false;
+    private boolean eof = false;
+
+    public EventIteratorLocked(Lock lock, List<Event> events, long startTime, long endTime) {
+        this.lock = lock;
+        this.events = events;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    @Override
+    public boolean moveNext() {
+        started = true;
+        if (events == null || eof) {
+            eof = true;
+            return false;
+        }
+
+        lock.lock();
+        try {
+            int next = cursor.nextPosition(events, startTime);
+            if (next < events.size() && events.get(next).timestamp() < endTime) {
+                cursor.moveTo(events.get(next), next);
+                return true;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+
+        eof = true;
+        return false;
+    }
+
+    @Override
+    public Event current() {
+        checkConditions();
+
+        return cursor.current();
+    }
+
+    @Override
+    public void remove() {
+        checkConditions();
+
+        if (cursor.isRemoved()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            int i = cursor.indexOfCurrent(events);
+            if (i >= 0) {
+                events.remove(i);
+                cursor.markRemoved(i);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+
+    }
+
+    private void checkConditions() {
+        if (!started) {
+            throw new IllegalStateException("moveNext() was never called");
+        }
+
+        if (eof) {
+            throw new IllegalStateException("no more events");
+        }
+    }
+
+}
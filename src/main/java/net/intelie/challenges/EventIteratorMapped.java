@@ -0,0 +1,84 @@
+package net.intelie.challenges;
+
+public class EventIteratorMapped implements EventIterator {
+    private final MappedEvents events;
+    private final long startTime;
+    private final long endTime;
+
+    private final TimestampCursor cursor = new TimestampCursor();
+    private Event current;
+    private boolean started = false;
+    private boolean eof = false;
+
+    EventIteratorMapped(MappedEvents events, long startTime, long endTime) {
+        this.events = events;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    @Override
+    public boolean moveNext() {
+        started = true;
+        if (events == null || eof) {
+            eof = true;
+            return false;
+        }
+
+        synchronized (events) {
+            int next = cursor.nextPosition(events, startTime);
+            if (next < events.size() && events.timestamp(next) < endTime) {
+                cursor.moveTo(events, next);
+                current = null;
+                return true;
+            }
+        }
+
+        eof = true;
+        return false;
+    }
+
+    @Override
+    public Event current() {
+        checkConditions();
+
+        if (current == null) {
+            current = new Event(events.type(), cursor.timestamp());
+        }
+        return current;
+    }
+
+    @Override
+    public long currentTimestamp() {
+        checkConditions();
+
+        return cursor.timestamp();
+    }
+
+    @Override
+    public void remove() {
+        checkConditions();
+
+        if (cursor.isRemoved()) {
+            return;
+        }
+
+        synchronized (events) {
+            cursor.removeCurrent(events);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+
+    }
+
+    private void checkConditions() {
+        if (!started) {
+            throw new IllegalStateException("moveNext() was never called");
+        }
+
+        if (eof) {
+            throw new IllegalStateException("no more events");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package net.intelie.challenges;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Iterates several sorted iterators as one, in timestamp order, with a k-way merge: a heap keeps the next event
+ * of each iterator, so each step costs {@code O(log k)} for {@code k} iterators. Events with the same timestamp
+ * come in the order of the iterators.
+ * <p>
+ * It is as consistent as the iterators merged, and removing the current event removes it through the iterator
+ * it came from. Closing it closes all of them.
+ */
+public class EventIteratorMerging implements EventIterator {
+    private final List<? extends EventIterator> iterators;
+    private final PriorityQueue<Source> heap;
+
+    private Source current;
+    private boolean started = false;
+    private boolean eof = false;
+
+    public EventIteratorMerging(List<? extends EventIterator> iterators) {
+        this.iterators = iterators;
+        this.heap = new PriorityQueue<>(Math.max(1, iterators.size()));
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (eof) {
+            return false;
+        }
+
+        if (!started) {
+            started = true;
+            for (int i = 0; i < iterators.size(); i++) {
+                Source source = new Source(iterators.get(i), i);
+                if (source.moveNext()) {
+                    heap.add(source);
+                }
+            }
+        }
+        else if (current.moveNext()) {
+            heap.add(current);
+        }
+
+        current = heap.poll();
+        if (current == null) {
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Event current() {
+        checkConditions();
+
+        return current.iterator.current();
+    }
+
+    @Override
+    public long currentTimestamp() {
+        checkConditions();
+
+        return current.timestamp;
+    }
+
+    @Override
+    public void remove() {
+        checkConditions();
+
+        current.iterator.remove();
+    }
+
+    @Override
+    public void close() throws Exception {
+        Exception failure = null;
+        for (EventIterator iterator : iterators) {
+            try {
+                iterator.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = e;
+                }
+                else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void checkConditions() {
+        if (!started) {
+            throw new IllegalStateException("moveNext() was never called");
+        }
+
+        if (eof) {
+            throw new IllegalStateException("no more events");
+        }
+    }
+
+    /**
+     * An iterator with the timestamp of its current event, so the heap does not ask for it on every comparison.
+     * Only the timestamp is read on each step, so iterators creating their events on demand create only the ones
+     * asked for.
+     */
+    private static final class Source implements Comparable<Source> {
+        private final EventIterator iterator;
+        private final int order;
+        private long timestamp;
+
+        Source(EventIterator iterator, int order) {
+            this.iterator = iterator;
+            this.order = order;
+        }
+
+        boolean moveNext() {
+            if (!iterator.moveNext()) {
+                return false;
+            }
+            timestamp = iterator.currentTimestamp();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Source other) {
+            int comparison = Long.compare(timestamp, other.timestamp);
+            return comparison != 0 ? comparison : Integer.compare(order, other.order);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package net.intelie.challenges;
+
+import java.util.Map;
+
+public class EventIteratorSegmented implements EventIterator {
+    private final SegmentedEvents events;
+    private final long startTime;
+    private final long endTime;
+
+    private Event current;
+    private boolean started = false;
+    private boolean eof = false;
+
+    private Long segmentKey;
+    private Segment segment;
+    private int index;
+    private long version;
+
+    /*
+     * Whether the current event was removed through this iterator, the event with its timestamp that followed it
+     * then, and how many events with its timestamp were returned before it and not removed through this iterator.
+     * Events with the same timestamp live in the same segment, so after the segments are changed by other threads
+     * the current event, or the one that followed it, is searched again among them, told apart by identity. Only if
+     * both are gone the ones returned before it are skipped.
+     */
+    private boolean removed;
+    private Event following;
+    private int returnedBefore;
+
+    EventIteratorSegmented(SegmentedEvents events, long startTime, long endTime) {
+        this.events = events;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (events == null) {
+            started = true;
+            eof = true;
+            return false;
+        }
+
+        synchronized (events) {
+            if (events.isDropped()) {
+                started = true;
+                eof = true;
+                return false;
+            }
+
+            boolean found;
+            if (!started) {
+                started = true;
+                found = seek(startTime) && skipExhaustedSegments();
+            }
+            else if (version == events.version() && segment != null) {
+                index++;
+                found = skipExhaustedSegments();
+            }
+            else {
+                found = seekAfterCurrent();
+            }
+
+            if (found) {
+                Event event = segment.get(index);
+                if (event.timestamp() < endTime) {
+                    updateCurrent(event);
+                    return true;
+                }
+            }
+        }
+
+        eof = true;
+        return false;
+    }
+
+    private void updateCurrent(Event event) {
+        if (current != null && event.timestamp() == current.timestamp()) {
+            returnedBefore += removed ? 0 : 1;
+        }
+        else {
+            returnedBefore = 0;
+        }
+        current = event;
+        removed = false;
+        following = null;
+        version = events.version();
+    }
+
+    /**
+     * Positions at the first event with timestamp greater or equal to {@code timestamp}, deleted or not.
+     *
+     * @return false if there are no segments.
+     */
+    private boolean seek(long timestamp) {
+        Map.Entry<Long, Segment> entry = events.segmentFor(timestamp);
+        if (entry == null) {
+            segment = null;
+            return false;
+        }
+
+        segmentKey = entry.getKey();
+        segment = entry.getValue();
+        index = segment.lowerBound(timestamp);
+        return true;
+    }
+
+    /**
+     * Positions after the current event, or at the one that followed it if it was removed through this iterator,
+     * found by identity among the ones with its timestamp.
+     */
+    private boolean seekAfterCurrent() {
+        long timestamp = current.timestamp();
+        if (!seek(timestamp)) {
+            return false;
+        }
+        Event anchor = removed ? following : current;
+        for (int i = index; anchor != null && i < segment.size() && segment.timestamp(i) == timestamp; i++) {
+            if (segment.get(i) == anchor && !segment.isDeleted(i)) {
+                index = anchor == current ? i + 1 : i;
+                return skipExhaustedSegments();
+            }
+        }
+
+        /* removed, skip the ones with the same timestamp returned before it */
+        int skip = returnedBefore;
+        while (skip > 0 && index < segment.size() && segment.timestamp(index) == timestamp) {
+            if (!segment.isDeleted(index)) {
+                skip--;
+            }
+            index++;
+        }
+        return skipExhaustedSegments();
+    }
+
+    /**
+     * Moves past the end of exhausted segments and past deleted events.
+     */
+    private boolean skipExhaustedSegments() {
+        while (index >= segment.size() || segment.isDeleted(index)) {
+            if (index < segment.size()) {
+                index++;
+                continue;
+            }
+            Map.Entry<Long, Segment> next = events.nextSegment(segmentKey);
+            if (next == null) {
+                return false;
+            }
+            segmentKey = next.getKey();
+            segment = next.getValue();
+            index = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public Event current() {
+        checkConditions();
+
+        return current;
+    }
+
+    @Override
+    public void remove() {
+        checkConditions();
+
+        synchronized (events) {
+            if (removed) {
+                return;
+            }
+            Event next = following();
+            if (events.remove(current)) {
+                removed = true;
+                following = next;
+            }
+        }
+    }
+
+    /**
+     * @return the event with the timestamp of the current one right after it, null if there is none.
+     */
+    private Event following() {
+        long timestamp = current.timestamp();
+        Map.Entry<Long, Segment> entry = events.segmentFor(timestamp);
+        if (entry == null) {
+            return null;
+        }
+        Segment owner = entry.getValue();
+        int i = owner.indexOf(current);
+        if (i < 0) {
+            return null;
+        }
+        for (i++; i < owner.size() && owner.timestamp(i) == timestamp; i++) {
+            if (!owner.isDeleted(i)) {
+                return owner.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws Exception {
+
+    }
+
+    private void checkConditions() {
+        if (!started) {
+            throw new IllegalStateException("moveNext() was never called");
+        }
+
+        if (eof) {
+            throw new IllegalStateException("no more events");
+        }
+    }
+}
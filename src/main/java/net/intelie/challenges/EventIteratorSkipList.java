@@ -0,0 +1,80 @@
+package net.intelie.challenges;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Weakly consistent iterator: it reflects inserts and removals made after its current position.
+ * <p>
+ * The position is the key of the current event, each step looks up the next greater key in the skip list,
+ * so no position repair is needed and nothing is allocated after the first step.
+ */
+public class EventIteratorSkipList implements EventIterator {
+    private final ConcurrentSkipListSet<EventKey> events;
+    private final long startTime;
+    private final long endTime;
+
+    private EventKey current;
+    private boolean started = false;
+    private boolean eof = false;
+
+    EventIteratorSkipList(ConcurrentSkipListSet<EventKey> events, long startTime, long endTime) {
+        this.events = events;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (events == null) {
+            started = true;
+            eof = true;
+            return false;
+        }
+
+        EventKey next;
+        if (!started || current == null) {
+            started = true;
+            next = events.ceiling(new EventKey(startTime, Long.MIN_VALUE, null));
+        }
+        else {
+            next = events.higher(current);
+        }
+
+        if (next != null && next.timestamp < endTime) {
+            current = next;
+            return true;
+        }
+
+        eof = true;
+        return false;
+    }
+
+    @Override
+    public Event current() {
+        checkConditions();
+
+        return current.event;
+    }
+
+    @Override
+    public void remove() {
+        checkConditions();
+
+        events.remove(current);
+    }
+
+    @Override
+    public void close() throws Exception {
+
+    }
+
+    private void checkConditions() {
+        if (!started) {
+            throw new IllegalStateException("moveNext() was never called");
+        }
+
+        if (eof) {
+            throw new IllegalStateException("no more events");
+        }
+    }
+}
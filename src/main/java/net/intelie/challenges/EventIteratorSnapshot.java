@@ -0,0 +1,138 @@
+package net.intelie.challenges;
+
+/**
+ * Iterates the sealed segments and the pinned head captured by {@link SegmentedEvents#sealedSegments} and
+ * {@link SegmentedEvents#pinHead}, without locks, as they were when the query was made.
+ * <p>
+ * Closing the iterator releases the head of the snapshot, so writers go back to changing it in place.
+ */
+public class EventIteratorSnapshot implements EventIterator {
+    private final SegmentedEvents events;
+    private final Segment[] sealed;
+    private final Segment head;
+    private final int segments;
+    private final long startTime;
+    private final long endTime;
+
+    private Event current;
+    private boolean started = false;
+    private boolean eof = false;
+    private boolean closed = false;
+
+    private int segmentIndex;
+    private int index;
+
+    EventIteratorSnapshot(SegmentedEvents events, Segment[] sealed, Segment head, long startTime, long endTime) {
+        this.events = events;
+        this.sealed = sealed;
+        this.head = head;
+        this.segments = sealed == null ? 0 : sealed.length + (head != null ? 1 : 0);
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    @Override
+    public boolean moveNext() {
+        if (sealed == null || eof) {
+            started = true;
+            eof = true;
+            return false;
+        }
+
+        if (!started) {
+            started = true;
+            segmentIndex = firstSegment();
+            index = segmentIndex < segments ? segment(segmentIndex).lowerBound(startTime) : 0;
+        }
+        else {
+            index++;
+        }
+
+        while (segmentIndex < segments
+                && (index >= segment(segmentIndex).size() || segment(segmentIndex).isDeleted(index))) {
+            if (index < segment(segmentIndex).size()) {
+                index++;
+            }
+            else {
+                segmentIndex++;
+                index = 0;
+            }
+        }
+
+        if (segmentIndex < segments) {
+            Event event = segment(segmentIndex).get(index);
+            if (event.timestamp() < endTime) {
+                current = event;
+                return true;
+            }
+        }
+
+        eof = true;
+        return false;
+    }
+
+    private Segment segment(int index) {
+        return index < sealed.length ? sealed[index] : head;
+    }
+
+    /**
+     * @return the index of the first segment with events at or after {@code startTime}.
+     */
+    private int firstSegment() {
+        int low = 0;
+        int high = segments;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Segment segment = segment(mid);
+            if (segment.size() > 0 && segment.timestamp(segment.size() - 1) < startTime) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public Event current() {
+        checkConditions();
+
+        return current;
+    }
+
+    /**
+     * Removes the current event from the store. The snapshot itself does not change.
+     */
+    @Override
+    public void remove() {
+        checkConditions();
+
+        synchronized (events) {
+            events.remove(current);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (sealed == null) {
+            return;
+        }
+        synchronized (events) {
+            if (!closed) {
+                closed = true;
+                events.release(head);
+            }
+        }
+    }
+
+    private void checkConditions() {
+        if (!started) {
+            throw new IllegalStateException("moveNext() was never called");
+        }
+
+        if (eof) {
+            throw new IllegalStateException("no more events");
+        }
+    }
+}
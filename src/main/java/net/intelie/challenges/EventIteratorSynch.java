@@ -2,132 +2,47 @@ package net.intelie.challenges;
 
 import java.util.*;
 
+/**
+ * Iterator over the sorted events of a type, locking them on each step.
+ * <p>
+ * The position is kept by an {@link EventCursor}, so nothing is allocated while iterating.
+ */
 public class EventIteratorSynch implements EventIterator {
     private final Object lock;
-    private List<Event> events;
-    private long startTime;
-    private long endTime;
+    private final List<Event> events;
+    private final RollupCounters rollups;
+    private final long startTime;
+    private final long endTime;
 
-    private Event current;
+    private final EventCursor cursor = new EventCursor();
     private boolean started = false;
     private boolean eof = false;
 
-    private int index;
-    private long currentTimestamp;
-    private long nextTimeStamp;
-
     public EventIteratorSynch(Object lock, List<Event> events, long startTime, long endTime) {
+        this(lock, events, null, startTime, endTime);
+    }
+
+    EventIteratorSynch(Object lock, List<Event> events, RollupCounters rollups, long startTime, long endTime) {
         this.lock = lock;
         this.events = events;
+        this.rollups = rollups;
         this.startTime = startTime;
         this.endTime = endTime;
     }
 
-    private void updateCurrent(Event event) {
-        current = event;
-        currentTimestamp = event.timestamp();
-        int i = index + 1;
-        if (i < events.size()) {
-            Event next = events.get(i);
-            nextTimeStamp = next.timestamp();
-        }
-        else {
-            nextTimeStamp = -1;
-        }
-    }
-
-    private int findInsertPosition(long timestamp) {
-        Event start = new Event("fake", timestamp);
-        int i = Collections.binarySearch(events, start, Comparator.comparingLong(Event::timestamp));
-        if (i < 0) {
-            i = -i - 1;
-        }
-
-        return i;
-    }
-
-    private void checkAndUpdatePosition() {
-        if (index < events.size()) {
-            Event check;
-            synchronized (lock) {
-                check = events.get(index);
-            }
-            if (check.timestamp() == currentTimestamp) {
-                index++;
-            }
-            else {
-                if (check.timestamp() < nextTimeStamp) {
-                    int i = index;
-                    synchronized (lock) {
-                        while (i < events.size()) {
-                            Event e = events.get(i);
-                            if (e.timestamp() > currentTimestamp) {
-                                break;
-                            }
-                            i++;
-                        }
-                    }
-                    index = i;
-                }
-                else if (check.timestamp() > nextTimeStamp) {
-                    int i = index;
-                    synchronized (lock) {
-                        while (i >= 0) {
-                            Event e = events.get(i);
-                            if (e.timestamp() <= nextTimeStamp) {
-                                if (e.timestamp() == nextTimeStamp) {
-                                    index = i;
-                                }
-                                else {
-                                    index = i + 1;
-                                }
-                                break;
-                            }
-                            i--;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
     @Override
     public boolean moveNext() {
-        if (events == null) {
-            started = true;
+        started = true;
+        if (events == null || eof) {
             eof = true;
             return false;
         }
 
-        if (!started) {
-            started = true;
-
-            synchronized (lock) {
-                /*
-                 * Esperamos a primeira chamada para evitar posicionar sem necessidade.
-                 */
-                index = findInsertPosition(startTime);
-
-                if (index < events.size()) {
-                    updateCurrent(events.get(index));
-                    return true;
-                }
-                else {
-                    eof = true;
-                    return false;
-                }
-            }
-        }
-
-        checkAndUpdatePosition();
-
-        if (index < events.size()) {
-            synchronized (lock) {
-                Event event = events.get(index);
-                if (event.timestamp() < endTime) {
-                    updateCurrent(event);
-                    return true;
-                }
+        synchronized (lock) {
+            int next = cursor.nextPosition(events, startTime);
+            if (next < events.size() && events.get(next).timestamp() < endTime) {
+                cursor.moveTo(events.get(next), next);
+                return true;
             }
         }
 
@@ -140,16 +55,37 @@ public class EventIteratorSynch implements EventIterator {
     public Event current() {
         checkConditions();
 
-        return current;
+        return cursor.current();
     }
 
     @Override
     public void remove() {
         checkConditions();
 
+        if (cursor.isRemoved()) {
+            return;
+        }
+
         synchronized (lock) {
-            events.remove(current);
+            int i = cursor.indexOfCurrent(events);
+            if (i >= 0) {
+                events.remove(i);
+                cursor.markRemoved(i);
+                if (rollups != null) {
+                    rollups.decrement(cursor.current().timestamp());
+                }
+            }
+        }
+    }
+
+    /**
+     * A spliterator over the events in range, read lazily as this iterator reads them.
+     */
+    Spliterator<Event> spliterator() {
+        if (events == null) {
+            return Spliterators.emptySpliterator();
         }
+        return new EventSpliterator(lock, events, startTime, endTime);
     }
 
     @Override
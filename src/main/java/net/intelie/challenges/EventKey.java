@@ -0,0 +1,23 @@
+package net.intelie.challenges;
+
+/**
+ * Sort key of an event inside a skip list: its timestamp, then a sequence number of its type telling apart events
+ * with the same timestamp. The key also holds the event, so the skip list keeps only the keys.
+ */
+final class EventKey implements Comparable<EventKey> {
+    final long timestamp;
+    final long sequence;
+    final Event event;
+
+    EventKey(long timestamp, long sequence, Event event) {
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+        this.event = event;
+    }
+
+    @Override
+    public int compareTo(EventKey other) {
+        int result = Long.compare(timestamp, other.timestamp);
+        return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+}
@@ -0,0 +1,10 @@
+package net.intelie.challenges;
+
+/**
+ * Receives the events of a {@link Subscription}, always from the thread of the subscription, or of an
+ * {@link EventStore#queryAsync}, from the thread running it.
+ */
+@FunctionalInterface
+public interface EventListener {
+    void onEvent(Event event);
+}
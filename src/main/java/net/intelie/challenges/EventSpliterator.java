@@ -0,0 +1,143 @@
+package net.intelie.challenges;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the events of a type in a time range, read from the list in chunks holding the lock once per
+ * chunk, so nothing is copied up front and the lock is never held for long.
+ * <p>
+ * Before it is read, it splits at the timestamp of the middle event of its range, so parallel streams divide the
+ * work about evenly. Like the iterators, it sees the changes made while it is read: the position between chunks is
+ * kept by an {@link EventCursor}, so no event is skipped or repeated, and the size is only an estimate.
+ * <p>
+ * So it never reports {@code SIZED} nor {@code SUBSIZED}: the store gives no way to know that a range stays as it
+ * is, since any thread may insert into it or remove from it, or remove the whole type, while it is read. A stream
+ * trusting a reported size would then drop events or leave nulls in arrays sized up front. Knowing the size would
+ * take copying the range under the lock, the cost this spliterator exists to avoid.
+ */
+final class EventSpliterator implements Spliterator<Event> {
+    private static final int CHUNK_SIZE = 1024;
+
+    private final Object lock;
+    private final List<Event> events;
+    private long startTime;
+    private final long endTime;
+
+    private final EventCursor cursor = new EventCursor();
+    private Event[] chunk;
+    private int chunkIndex;
+    private int chunkSize;
+    /* events left in range, -1 until first asked */
+    private long estimate = -1;
+
+    EventSpliterator(Object lock, List<Event> events, long startTime, long endTime) {
+        this.lock = lock;
+        this.events = events;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    private EventSpliterator(Object lock, List<Event> events, long startTime, long endTime, long estimate) {
+        this(lock, events, startTime, endTime);
+        this.estimate = estimate;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Event> action) {
+        if (chunkIndex == chunkSize && !readChunk()) {
+            return false;
+        }
+        consume(action, chunk[chunkIndex++]);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Event> action) {
+        while (chunkIndex < chunkSize || readChunk()) {
+            while (chunkIndex < chunkSize) {
+                consume(action, chunk[chunkIndex++]);
+            }
+        }
+    }
+
+    private void consume(Consumer<? super Event> action, Event event) {
+        if (estimate > 0) {
+            estimate--;
+        }
+        action.accept(event);
+    }
+
+    /**
+     * Copies the next events in range, up to a chunk of them.
+     *
+     * @return false if there are no more.
+     */
+    private boolean readChunk() {
+        if (chunk == null) {
+            chunk = new Event[CHUNK_SIZE];
+        }
+        int count = 0;
+        synchronized (lock) {
+            int next = cursor.nextPosition(events, startTime);
+            while (count < CHUNK_SIZE && next < events.size() && events.get(next).timestamp() < endTime) {
+                Event event = events.get(next);
+                cursor.moveTo(event, next++);
+                chunk[count++] = event;
+            }
+        }
+        for (int i = count; i < chunkSize; i++) {
+            chunk[i] = null;
+        }
+        chunkIndex = 0;
+        chunkSize = count;
+        return count > 0;
+    }
+
+    /**
+     * Splits off the events before the middle one of the range, as long as nothing was read yet.
+     */
+    @Override
+    public Spliterator<Event> trySplit() {
+        if (chunk != null) {
+            return null;
+        }
+        synchronized (lock) {
+            int first = SortedEvents.lowerBound(events, startTime);
+            int fence = SortedEvents.lowerBound(events, endTime);
+            long middle = fence - first < 2 ? startTime : events.get((first + fence) >>> 1).timestamp();
+            if (middle <= startTime) {
+                /* too few, or all of the first half have the first timestamp */
+                estimate = fence - first;
+                return null;
+            }
+            int split = SortedEvents.lowerBound(events, middle);
+            Spliterator<Event> prefix = new EventSpliterator(lock, events, startTime, middle, split - first);
+            startTime = middle;
+            estimate = fence - split;
+            return prefix;
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        if (estimate < 0) {
+            synchronized (lock) {
+                estimate = SortedEvents.lowerBound(events, endTime) - SortedEvents.lowerBound(events, startTime);
+            }
+        }
+        return estimate;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | NONNULL;
+    }
+
+    @Override
+    public Comparator<? super Event> getComparator() {
+        return EventStreams.BY_TIMESTAMP;
+    }
+}
@@ -1,5 +1,13 @@
 package net.intelie.challenges;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
 /**
  * An abstraction of an event store.
  * <p>
@@ -15,6 +23,19 @@ public interface EventStore {
      */
     void insert(Event event);
 
+    /**
+     * Stores a batch of events.
+     * <p>
+     * Implementations may store the whole batch at once, much faster than inserting each event.
+     *
+     * @param events
+     */
+    default void insertAll(Collection<Event> events) {
+        for (Event event : events) {
+            insert(event);
+        }
+    }
+
 
     /**
      * Removes all events of specific type.
@@ -34,4 +55,115 @@ public interface EventStore {
      * (inclusive) and {@param endTime} (exclusive).
      */
     EventIterator query(String type, long startTime, long endTime);
+
+    /**
+     * Retrieves an iterator for events of several types, merged in timestamp order.
+     *
+     * @param types     The types we are querying for, repeated ones are queried once.
+     * @param startTime Start timestamp (inclusive).
+     * @param endTime   End timestamp (exclusive).
+     * @return An iterator where all its events have one of the {@param types} and timestamp between
+     * {@param startTime} (inclusive) and {@param endTime} (exclusive), sorted by timestamp.
+     */
+    default EventIterator query(Collection<String> types, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        List<EventIterator> iterators = new ArrayList<>();
+        for (String type : new LinkedHashSet<>(types)) {
+            iterators.add(query(type, startTime, endTime));
+        }
+        return new EventIteratorMerging(iterators);
+    }
+
+    /**
+     * Retrieves a stream of the same events {@link #query} would iterate, in timestamp order.
+     * <p>
+     * Closing the stream closes the iterator it is based on.
+     *
+     * @param type      The type we are querying for.
+     * @param startTime Start timestamp (inclusive).
+     * @param endTime   End timestamp (exclusive).
+     * @return A sequential stream, that may be turned parallel.
+     */
+    default Stream<Event> stream(String type, long startTime, long endTime) {
+        return EventStreams.of(query(type, startTime, endTime));
+    }
+
+    /**
+     * Counts the events {@link #query} would iterate.
+     *
+     * @param type      The type we are querying for.
+     * @param startTime Start timestamp (inclusive).
+     * @param endTime   End timestamp (exclusive).
+     * @return The number of events in range.
+     */
+    default long count(String type, long startTime, long endTime) {
+        long count = 0;
+        try (EventIterator eventIterator = query(type, startTime, endTime)) {
+            while (eventIterator.moveNext()) {
+                count++;
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the events {@link #query} would iterate per bucket of {@code bucketWidth}, starting at
+     * {@code startTime}.
+     *
+     * @param type        The type we are querying for.
+     * @param startTime   Start timestamp (inclusive).
+     * @param endTime     End timestamp (exclusive), the last bucket is cut short by it.
+     * @param bucketWidth Width of the buckets, in timestamps.
+     * @return The counts, bucket {@code i} covering {@code [startTime + i * bucketWidth, startTime + (i + 1) * bucketWidth)}.
+     */
+    default long[] histogram(String type, long startTime, long endTime, long bucketWidth) {
+        long[] histogram = Histograms.create(startTime, endTime, bucketWidth);
+        try (EventIterator eventIterator = query(type, startTime, endTime)) {
+            while (eventIterator.moveNext()) {
+                histogram[(int) ((eventIterator.currentTimestamp() - startTime) / bucketWidth)]++;
+            }
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return histogram;
+    }
+
+    /**
+     * Delivers the events {@link #query} would iterate to {@code listener}, in timestamp order, from a task run by
+     * {@code executor}, so the caller does not wait while they are read. An executor of virtual threads, such as
+     * {@link VirtualThreads#executor()}, runs tens of thousands of these at once.
+     *
+     * @param type      The type we are querying for.
+     * @param startTime Start timestamp (inclusive).
+     * @param endTime   End timestamp (exclusive).
+     * @return Completed with the number of events delivered, or exceptionally if the query or the listener fails.
+     */
+    default CompletableFuture<Long> queryAsync(String type, long startTime, long endTime, EventListener listener,
+                                               Executor executor) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            long delivered = 0;
+            try (EventIterator eventIterator = query(type, startTime, endTime)) {
+                while (eventIterator.moveNext()) {
+                    listener.onEvent(eventIterator.current());
+                    delivered++;
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return delivered;
+        }, executor);
+    }
 }
@@ -0,0 +1,54 @@
+package net.intelie.challenges;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-Safe EventStore keeping the events of each type as columns of primitives.
+ * <p>
+ * Stored events cost their primitive fields only, with no object header nor reference per event, and the
+ * garbage collector has a handful of arrays to walk instead of millions of small objects. {@link Event}
+ * instances are created only when {@link EventIterator#current()} is called, so they are not the same
+ * instances inserted. Each type has its own lock.
+ */
+public class EventStoreColumnar implements EventStore {
+
+    private final ConcurrentMap<String, ColumnarEvents> eventsByType = new ConcurrentHashMap<>();
+
+    @Override
+    public void insert(Event event) {
+        String type = event.type();
+        while (true) {
+            ColumnarEvents events = eventsByType.get(type);
+            if (events == null) {
+                events = eventsByType.computeIfAbsent(type, ColumnarEvents::new);
+            }
+            synchronized (events) {
+                if (events.insert(event.timestamp(), event.payload())) {
+                    return;
+                }
+            }
+            /*
+             * Dropped by a concurrent removeAll, try again with a new instance.
+             */
+        }
+    }
+
+    @Override
+    public void removeAll(String type) {
+        ColumnarEvents events = eventsByType.remove(type);
+        if (events != null) {
+            synchronized (events) {
+                events.drop();
+            }
+        }
+    }
+
+    @Override
+    public EventIterator query(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        return new EventIteratorColumnar(eventsByType.get(type), startTime, endTime);
+    }
+}
@@ -0,0 +1,148 @@
+package net.intelie.challenges;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-Safe EventStore guarded by a {@link ReentrantLock} per type instead of monitors, for callers running on
+ * virtual threads.
+ * <p>
+ * A virtual thread blocked entering a {@code synchronized} block, or waiting inside one, pins the platform thread
+ * carrying it, so a few thousand readers of a popular type can take all the carriers. Blocked on a
+ * {@code ReentrantLock}, it gives the carrier back.
+ * <p>
+ * Otherwise the same as the events of {@link EventStoreSynch}: the events of each type sorted by timestamp, found
+ * by the id of the type, without rollup counters or subscriptions.
+ */
+public class EventStoreLocked implements EventStore {
+
+    private static final int INITIAL_CAPACITY = 1000;
+
+    private final TypeTable<LockedEvents> eventsByType = new TypeTable<>();
+
+    /**
+     * Events of a single type and the lock guarding them.
+     */
+    static final class LockedEvents {
+        final ReentrantLock lock = new ReentrantLock();
+        final List<Event> events = new ArrayList<>(INITIAL_CAPACITY);
+    }
+
+    private LockedEvents lockedEvents(int type) {
+        LockedEvents lockedEvents = this.eventsByType.get(type);
+        if (lockedEvents == null) {
+            lockedEvents = eventsByType.computeIfAbsent(type, id -> new LockedEvents());
+        }
+        return lockedEvents;
+    }
+
+    /**
+     * @return the events of the type, null if there are none.
+     */
+    private LockedEvents existingLockedEvents(String type) {
+        EventType eventType = TypeDictionary.lookup(type);
+        return eventType != null ? this.eventsByType.get(eventType.id()) : null;
+    }
+
+    @Override
+    public void insert(Event event) {
+        int type = event.typeId();
+        while (true) {
+            LockedEvents lockedEvents = lockedEvents(type);
+            lockedEvents.lock.lock();
+            try {
+                /*
+                 * A concurrent removeAll may have discarded these events, then try again with new ones.
+                 */
+                if (eventsByType.get(type) != lockedEvents) {
+                    continue;
+                }
+                List<Event> events = lockedEvents.events;
+                events.add(SortedEvents.upperBound(events, event.timestamp()), event);
+                return;
+            }
+            finally {
+                lockedEvents.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Each type of the batch is sorted once, then merged into the stored events holding the lock of the type once.
+     */
+    @Override
+    public void insertAll(Collection<Event> batch) {
+        for (Map.Entry<String, List<Event>> group : SortedEvents.groupByType(batch).entrySet()) {
+            int type = group.getValue().get(0).typeId();
+            while (true) {
+                LockedEvents lockedEvents = lockedEvents(type);
+                lockedEvents.lock.lock();
+                try {
+                    if (eventsByType.get(type) != lockedEvents) {
+                        continue;
+                    }
+                    SortedEvents.merge(lockedEvents.events, group.getValue());
+                    break;
+                }
+                finally {
+                    lockedEvents.lock.unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void removeAll(String type) {
+        EventType eventType = TypeDictionary.lookup(type);
+        if (eventType == null) {
+            return;
+        }
+        LockedEvents lockedEvents = this.eventsByType.get(eventType.id());
+        if (lockedEvents != null) {
+            lockedEvents.lock.lock();
+            try {
+                eventsByType.remove(eventType.id(), lockedEvents);
+            }
+            finally {
+                lockedEvents.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public EventIterator query(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        LockedEvents lockedEvents = existingLockedEvents(type);
+        if (lockedEvents == null) {
+            return new EventIteratorLocked(null, null, startTime, endTime);
+        }
+        return new EventIteratorLocked(lockedEvents.lock, lockedEvents.events, startTime, endTime);
+    }
+
+    /**
+     * Two binary searches, no matter how many events are in range.
+     */
+    @Override
+    public long count(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        LockedEvents lockedEvents = existingLockedEvents(type);
+        if (lockedEvents == null) {
+            return 0;
+        }
+        lockedEvents.lock.lock();
+        try {
+            List<Event> events = lockedEvents.events;
+            return SortedEvents.lowerBound(events, endTime) - SortedEvents.lowerBound(events, startTime);
+        }
+        finally {
+            lockedEvents.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package net.intelie.challenges;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-Safe EventStore keeping its events off-heap, in memory-mapped files.
+ * <p>
+ * Each type has its own file in the store directory, {@code type-<id>.events}, and the file
+ * {@code types.dat} lists the type names in the order their ids were given. Opening a store over an existing
+ * directory maps the files again, so the events survive a restart without being loaded into the heap.
+ * Each type has its own lock.
+ * <p>
+ * Only types and timestamps are stored, so events with a {@link Payload} are rejected rather than stored without it.
+ */
+public class EventStoreMapped implements EventStore, Closeable {
+
+    private static final String TYPES_FILE = "types.dat";
+
+    private final Path directory;
+    private final ConcurrentMap<String, MappedEvents> eventsByType = new ConcurrentHashMap<>();
+    private final Object typesLock = new Object();
+    private final DataOutputStream types;
+
+    public EventStoreMapped(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+
+        Path typesFile = directory.resolve(TYPES_FILE);
+        if (Files.exists(typesFile)) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(typesFile)))) {
+                int typeId = 0;
+                while (input.available() > 0) {
+                    String type = input.readUTF();
+                    eventsByType.put(type, MappedEvents.open(eventsFile(typeId), type, typeId));
+                    typeId++;
+                }
+            }
+        }
+        this.types = new DataOutputStream(Files.newOutputStream(typesFile,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    private Path eventsFile(int typeId) {
+        return directory.resolve("type-" + typeId + ".events");
+    }
+
+    private MappedEvents register(String type) {
+        synchronized (typesLock) {
+            MappedEvents events = eventsByType.get(type);
+            if (events == null) {
+                try {
+                    int typeId = eventsByType.size();
+                    events = MappedEvents.open(eventsFile(typeId), type, typeId);
+                    types.writeUTF(type);
+                    types.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                eventsByType.put(type, events);
+            }
+            return events;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the event has a payload.
+     */
+    @Override
+    public void insert(Event event) {
+        if (!event.payload().isEmpty()) {
+            throw new IllegalArgumentException("payloads are not stored by " + getClass().getSimpleName());
+        }
+        MappedEvents events = eventsByType.get(event.type());
+        if (events == null) {
+            events = register(event.type());
+        }
+        synchronized (events) {
+            events.insert(event.timestamp());
+        }
+    }
+
+    /**
+     * The type keeps its file and id, only its events are removed.
+     */
+    @Override
+    public void removeAll(String type) {
+        MappedEvents events = eventsByType.get(type);
+        if (events != null) {
+            synchronized (events) {
+                events.clear();
+            }
+        }
+    }
+
+    @Override
+    public EventIterator query(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        return new EventIteratorMapped(eventsByType.get(type), startTime, endTime);
+    }
+
+    /**
+     * Flushes the mapped files to disk.
+     */
+    public void force() {
+        for (MappedEvents events : eventsByType.values()) {
+            synchronized (events) {
+                events.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (typesLock) {
+            types.close();
+            for (MappedEvents events : eventsByType.values()) {
+                synchronized (events) {
+                    events.close();
+                }
+            }
+        }
+    }
+}
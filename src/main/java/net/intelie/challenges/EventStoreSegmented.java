@@ -0,0 +1,213 @@
+package net.intelie.challenges;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-Safe EventStore keeping the events of each type in time ordered segments of bounded size.
+ * <p>
+ * An insert only shifts the events of one segment, so its cost does not grow with the number of events
+ * of the type. Each type has its own lock.
+ * <p>
+ * Besides the live {@link #query}, {@link #querySnapshot} iterates a stable view of the events without locks.
+ * <p>
+ * A {@link RetentionPolicy} bounds the events kept. A background evictor, shared by all stores, periodically drops
+ * whole segments, the oldest first, never individual events.
+ */
+public class EventStoreSegmented implements EventStore {
+
+    private static final int DEFAULT_SEGMENT_CAPACITY = 1024;
+    private static final double DEFAULT_COMPACTION_THRESHOLD = 0.25;
+
+    private static final ScheduledExecutorService EVICTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "segment-evictor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ConcurrentMap<String, SegmentedEvents> eventsByType = new ConcurrentHashMap<>();
+    private final int segmentCapacity;
+    private final double compactionThreshold;
+    private final RetentionPolicy retention;
+    private final RetentionMetrics retentionMetrics = new RetentionMetrics();
+
+    public EventStoreSegmented() {
+        this(DEFAULT_SEGMENT_CAPACITY);
+    }
+
+    public EventStoreSegmented(int segmentCapacity) {
+        this(segmentCapacity, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param compactionThreshold fraction of removed events that makes a segment be rewritten without them, 0.25
+     *                            by default. With 1 segments are only discarded when all their events are removed.
+     */
+    public EventStoreSegmented(int segmentCapacity, double compactionThreshold) {
+        this(segmentCapacity, compactionThreshold, RetentionPolicy.unlimited());
+    }
+
+    public EventStoreSegmented(RetentionPolicy retention) {
+        this(DEFAULT_SEGMENT_CAPACITY, DEFAULT_COMPACTION_THRESHOLD, retention);
+    }
+
+    public EventStoreSegmented(int segmentCapacity, double compactionThreshold, RetentionPolicy retention) {
+        if (segmentCapacity < 2) {
+            throw new IllegalArgumentException("segment capacity must be at least 2");
+        }
+        if (!(compactionThreshold > 0 && compactionThreshold <= 1)) {
+            throw new IllegalArgumentException("compaction threshold must be in (0, 1]");
+        }
+        this.segmentCapacity = segmentCapacity;
+        this.compactionThreshold = compactionThreshold;
+        this.retention = retention;
+        if (!retention.isUnlimited()) {
+            scheduleEviction(this, retention.evictionPeriod());
+        }
+    }
+
+    /**
+     * The evictor only holds the store weakly, and stops once the store is collected.
+     */
+    private static void scheduleEviction(EventStoreSegmented store, long period) {
+        WeakReference<EventStoreSegmented> reference = new WeakReference<>(store);
+        AtomicReference<ScheduledFuture<?>> future = new AtomicReference<>();
+        future.set(EVICTOR.scheduleWithFixedDelay(() -> {
+            EventStoreSegmented referent = reference.get();
+            if (referent != null) {
+                referent.evict();
+            }
+            else if (future.get() != null) {
+                future.get().cancel(false);
+            }
+        }, period, period, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void insert(Event event) {
+        while (true) {
+            SegmentedEvents events = eventsByType.get(event.type());
+            if (events == null) {
+                events = eventsByType.computeIfAbsent(event.type(),
+                        t -> new SegmentedEvents(segmentCapacity, compactionThreshold));
+            }
+            synchronized (events) {
+                if (events.insert(event)) {
+                    return;
+                }
+            }
+            /*
+             * Dropped by a concurrent removeAll, try again with a new instance.
+             */
+        }
+    }
+
+    @Override
+    public void removeAll(String type) {
+        SegmentedEvents events = eventsByType.remove(type);
+        if (events != null) {
+            synchronized (events) {
+                events.drop();
+            }
+        }
+    }
+
+    @Override
+    public EventIterator query(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        return new EventIteratorSegmented(eventsByType.get(type), startTime, endTime);
+    }
+
+    /**
+     * Retrieves an iterator over the events stored when this method is called, not affected by later changes.
+     * <p>
+     * Opening it only takes the sealed segments of the type, shared by the snapshots taken until one of them
+     * changes, and iterating it takes no locks. Until it is closed, the first change to the most recent segment copies it.
+     */
+    public EventIterator querySnapshot(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        SegmentedEvents events = eventsByType.get(type);
+        if (events == null) {
+            return new EventIteratorSnapshot(null, null, null, startTime, endTime);
+        }
+        synchronized (events) {
+            return new EventIteratorSnapshot(events, events.sealedSegments(), events.pinHead(), startTime, endTime);
+        }
+    }
+
+    public RetentionMetrics retentionMetrics() {
+        return retentionMetrics;
+    }
+
+    /**
+     * Applies the retention policy now, as the background evictor does.
+     */
+    public void evict() {
+        long now = retention.now();
+        for (Map.Entry<String, SegmentedEvents> entry : eventsByType.entrySet()) {
+            long maxAge = retention.maxAge(entry.getKey());
+            /* the cutoff may overflow with small clocks, then nothing is old enough */
+            if (maxAge != RetentionPolicy.UNLIMITED && now - maxAge < now) {
+                SegmentedEvents events = entry.getValue();
+                synchronized (events) {
+                    events.evictBefore(now - maxAge, retentionMetrics);
+                }
+            }
+        }
+
+        if (retention.maxEvents() != RetentionPolicy.UNLIMITED || retention.maxBytes() != RetentionPolicy.UNLIMITED) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * Evicts the oldest segments of all types until the events fit in the limits. The totals are taken once and
+     * decreased by each segment evicted, so concurrent inserts are only accounted for by the next run.
+     */
+    private void evictOldest() {
+        long events = 0;
+        long bytes = 0;
+        PriorityQueue<Oldest> oldest = new PriorityQueue<>();
+        for (SegmentedEvents typeEvents : eventsByType.values()) {
+            synchronized (typeEvents) {
+                events += typeEvents.events();
+                bytes += typeEvents.bytes();
+                oldest.add(new Oldest(typeEvents, typeEvents.firstTimestamp()));
+            }
+        }
+
+        while ((events > retention.maxEvents() || bytes > retention.maxBytes()) && !oldest.isEmpty()) {
+            SegmentedEvents typeEvents = oldest.poll().events;
+            synchronized (typeEvents) {
+                Segment segment = typeEvents.evictFirst(retentionMetrics);
+                if (segment != null) {
+                    events -= segment.size() - segment.deleted();
+                    bytes -= segment.bytes();
+                    oldest.add(new Oldest(typeEvents, typeEvents.firstTimestamp()));
+                }
+            }
+        }
+    }
+
+    private static final class Oldest implements Comparable<Oldest> {
+        final SegmentedEvents events;
+        final long firstTimestamp;
+
+        Oldest(SegmentedEvents events, long firstTimestamp) {
+            this.events = events;
+            this.firstTimestamp = firstTimestamp;
+        }
+
+        @Override
+        public int compareTo(Oldest other) {
+            return Long.compare(firstTimestamp, other.firstTimestamp);
+        }
+    }
+}
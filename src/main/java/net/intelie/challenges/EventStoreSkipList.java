@@ -0,0 +1,56 @@
+package net.intelie.challenges;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking Thread-Safe EventStore.
+ * <p>
+ * Each type is a {@link ConcurrentSkipListSet} of keys holding the events, so inserts, removals and iterations
+ * never wait for each other, not even on the same type. Iterators are weakly consistent.
+ */
+public class EventStoreSkipList implements EventStore {
+
+    private final ConcurrentMap<String, TypeEvents> eventsByType = new ConcurrentHashMap<>();
+
+    /**
+     * The keys of the events of a type, and the sequence telling apart the ones with the same timestamp, so
+     * writers of different types never touch the same counter.
+     */
+    private static final class TypeEvents {
+        final ConcurrentSkipListSet<EventKey> keys = new ConcurrentSkipListSet<>();
+        final AtomicLong sequence = new AtomicLong();
+    }
+
+    @Override
+    public void insert(Event event) {
+        String type = event.type();
+        TypeEvents events = eventsByType.get(type);
+        if (events == null) {
+            events = eventsByType.computeIfAbsent(type, t -> new TypeEvents());
+        }
+        events.keys.add(new EventKey(event.timestamp(), events.sequence.getAndIncrement(), event));
+    }
+
+    @Override
+    public void removeAll(String type) {
+        TypeEvents events = eventsByType.remove(type);
+        if (events != null) {
+            /*
+             * Lets the iterators already open see the removal.
+             */
+            events.keys.clear();
+        }
+    }
+
+    @Override
+    public EventIterator query(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        TypeEvents events = eventsByType.get(type);
+        return new EventIteratorSkipList(events != null ? events.keys : null, startTime, endTime);
+    }
+}
@@ -1,53 +1,424 @@
 package net.intelie.challenges;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Thread-Safe EventStore.
+ * <p>
+ * Each type has its own lock, the object holding its events, so readers and writers of different types
+ * never wait for each other. The events of each type are found by the id of the type, in an array.
+ * <p>
+ * Events are also counted per time bucket of a fixed width, the rollup width, so {@link #histogram} with
+ * buckets multiple of that width does not need to look at the events.
+ * <p>
+ * Live readers may {@link #subscribe} instead of keeping an iterator open: inserts push the matching events to
+ * the subscriptions, so nothing is searched again to find late events.
+ * <p>
+ * The names of the types are also kept sorted, so {@link #queryMatching} finds the types starting with a prefix
+ * without looking at the others.
+ * <p>
+ * Optionally, a {@link TimeIndex} tells which types have events in each rollup bucket, so
+ * {@link #queryAllTypes} looks only at the types with events in its window.
  */
 public class EventStoreSynch implements EventStore {
 
     private static final int INITIAL_CAPACITY = 1000;
+    private static final long DEFAULT_ROLLUP_WIDTH = 60_000;
+    private static final int DEFAULT_SUBSCRIPTION_CAPACITY = 1024;
 
-    private Map<String, List<Event>> eventsByType = new HashMap<>();
-    private final Object lock = new Object();
+    private final TypeTable<TypeEvents> eventsByType = new TypeTable<>();
+    /* never removed from, like the names in the TypeDictionary, types with no events are skipped by queries */
+    private final NavigableSet<String> typeNames = new ConcurrentSkipListSet<>();
+    private final long rollupWidth;
+    /* null if not time indexed */
+    private final TimeIndex timeIndex;
+
+    public EventStoreSynch() {
+        this(DEFAULT_ROLLUP_WIDTH);
+    }
+
+    /**
+     * @param rollupWidth width of the time buckets events are counted in, 60000 (a minute in milliseconds) by default.
+     */
+    public EventStoreSynch(long rollupWidth) {
+        this(rollupWidth, false);
+    }
+
+    /**
+     * @param timeIndexed whether to keep which types have events in each rollup bucket, for {@link #queryAllTypes}.
+     *                    Costs an update of the index whenever a type starts or stops having events in a bucket.
+     */
+    public EventStoreSynch(long rollupWidth, boolean timeIndexed) {
+        if (rollupWidth <= 0) {
+            throw new IllegalArgumentException("rollup width must be positive");
+        }
+        this.rollupWidth = rollupWidth;
+        this.timeIndex = timeIndexed ? new TimeIndex(rollupWidth) : null;
+    }
+
+    private TypeEvents newTypeEvents(int type) {
+        return new TypeEvents(INITIAL_CAPACITY, new RollupCounters(rollupWidth, timeIndex, type));
+    }
+
+    private TypeEvents typeEvents(int type) {
+        TypeEvents typeEvents = this.eventsByType.get(type);
+        if (typeEvents == null) {
+            /* named first, so queries by name find the type as soon as it has events */
+            typeNames.add(TypeDictionary.byId(type).name());
+            typeEvents = eventsByType.computeIfAbsent(type, this::newTypeEvents);
+        }
+        return typeEvents;
+    }
+
+    /**
+     * @return the events of the type, null if there are none.
+     */
+    private TypeEvents existingTypeEvents(String type) {
+        EventType eventType = TypeDictionary.lookup(type);
+        return eventType != null ? this.eventsByType.get(eventType.id()) : null;
+    }
 
     @Override
     public void insert(Event event) {
-        String type = event.type();
-        synchronized (lock) {
-            List<Event> events = this.eventsByType.get(type);
-            if (events == null) {
-                events = new ArrayList<>(INITIAL_CAPACITY);
-                eventsByType.put(type, events);
-                events.add(event);
-            }
-            else {
-                int index = Collections.binarySearch(events, event, Comparator.comparingLong(Event::timestamp));
-                if (index < 0) {
-                    index = -index - 1;
+        int type = event.typeId();
+        Subscription[] subscriptions;
+        while (true) {
+            TypeEvents typeEvents = typeEvents(type);
+            synchronized (typeEvents) {
+                /*
+                 * A concurrent removeAll may have discarded these events, then try again with new ones.
+                 */
+                if (eventsByType.get(type) != typeEvents) {
+                    continue;
                 }
+                List<Event> events = typeEvents.events;
+                int index = SortedEvents.upperBound(events, event.timestamp());
                 events.add(index, event);
+                typeEvents.rollups.increment(event.timestamp());
+                subscriptions = typeEvents.subscriptions;
+                break;
+            }
+        }
+
+        for (Subscription subscription : subscriptions) {
+            if (subscription.matches(event)) {
+                subscription.push(event);
+            }
+        }
+    }
+
+    /**
+     * Each type of the batch is sorted once, then merged into the stored events holding the lock of the type once.
+     */
+    @Override
+    public void insertAll(Collection<Event> batch) {
+        for (Map.Entry<String, List<Event>> group : SortedEvents.groupByType(batch).entrySet()) {
+            int type = group.getValue().get(0).typeId();
+            Subscription[] subscriptions;
+            while (true) {
+                TypeEvents typeEvents = typeEvents(type);
+                synchronized (typeEvents) {
+                    if (eventsByType.get(type) != typeEvents) {
+                        continue;
+                    }
+                    SortedEvents.merge(typeEvents.events, group.getValue());
+                    for (Event event : group.getValue()) {
+                        typeEvents.rollups.increment(event.timestamp());
+                    }
+                    subscriptions = typeEvents.subscriptions;
+                    break;
+                }
+            }
+
+            for (Subscription subscription : subscriptions) {
+                for (Event event : group.getValue()) {
+                    if (subscription.matches(event)) {
+                        subscription.push(event);
+                    }
+                }
             }
         }
     }
 
     @Override
     public void removeAll(String type) {
-        synchronized (lock) {
-            List<Event> events = this.eventsByType.get(type);
-            if (events != null) {
-                eventsByType.remove(type);
+        EventType eventType = TypeDictionary.lookup(type);
+        if (eventType == null) {
+            return;
+        }
+        int id = eventType.id();
+        TypeEvents typeEvents = this.eventsByType.get(id);
+        if (typeEvents != null) {
+            synchronized (typeEvents) {
+                if (typeEvents.subscriptions.length == 0) {
+                    eventsByType.remove(id, typeEvents);
+                }
+                else {
+                    /* the subscriptions go on receiving the events inserted later */
+                    eventsByType.replace(id, typeEvents, new TypeEvents(INITIAL_CAPACITY,
+                            new RollupCounters(rollupWidth, timeIndex, id), typeEvents.subscriptions));
+                }
+                typeEvents.rollups.clear();
+            }
+        }
+    }
+
+    public Subscription subscribe(String type, long startTime, long endTime, EventListener listener) {
+        return subscribe(type, startTime, endTime, listener, DEFAULT_SUBSCRIPTION_CAPACITY);
+    }
+
+    /**
+     * Delivers to {@code listener} the events of {@code type} with timestamp between {@code startTime} (inclusive)
+     * and {@code endTime} (exclusive): the ones already stored, then the ones inserted until the subscription is
+     * closed. Removals are not delivered.
+     * <p>
+     * The events inserted by a thread are delivered in the order it inserted them. Inserts are handed over after
+     * the lock of the type is released, so events inserted at the same time by different threads may be delivered
+     * in either order.
+     * <p>
+     * The listener runs in a thread of its own and must not block waiting for inserts of the same type, since
+     * the writers may be waiting for it when the buffer is full.
+     *
+     * @param capacity how many events may be waiting for the listener before the writers of the type wait too.
+     */
+    public Subscription subscribe(String type, long startTime, long endTime, EventListener listener, int capacity) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        EventType eventType = TypeDictionary.intern(type);
+        Subscription subscription = new Subscription(eventType, startTime, endTime, listener, capacity,
+                this::unsubscribe);
+        while (true) {
+            TypeEvents typeEvents = typeEvents(eventType.id());
+            synchronized (typeEvents) {
+                if (eventsByType.get(eventType.id()) != typeEvents) {
+                    continue;
+                }
+                List<Event> events = typeEvents.events;
+                Event[] backlog = events
+                        .subList(SortedEvents.lowerBound(events, startTime), SortedEvents.lowerBound(events, endTime))
+                        .toArray(new Event[0]);
+                typeEvents.subscribe(subscription);
+                subscription.start(backlog);
+                return subscription;
+            }
+        }
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        int type = subscription.type().id();
+        while (true) {
+            TypeEvents typeEvents = this.eventsByType.get(type);
+            if (typeEvents == null) {
+                return;
+            }
+            synchronized (typeEvents) {
+                if (eventsByType.get(type) != typeEvents) {
+                    continue;
+                }
+                typeEvents.unsubscribe(subscription);
+                return;
             }
         }
     }
 
     @Override
     public EventIterator query(String type, long startTime, long endTime) {
+        return iterator(type, startTime, endTime);
+    }
+
+    private EventIteratorSynch iterator(String type, long startTime, long endTime) {
+        EventType eventType = TypeDictionary.lookup(type);
+        if (eventType == null) {
+            if (endTime <= startTime) {
+                throw new IllegalArgumentException();
+            }
+            return new EventIteratorSynch(null, null, startTime, endTime);
+        }
+        return iterator(eventType.id(), startTime, endTime);
+    }
+
+    /**
+     * The same as {@link #query(String, long, long)}, for callers that keep the id of the type, from
+     * {@link TypeDictionary#intern}, instead of looking up its name every time. An unknown id gives an empty
+     * iterator, as an unknown name does.
+     */
+    public EventIterator query(int type, long startTime, long endTime) {
+        return iterator(type, startTime, endTime);
+    }
+
+    private EventIteratorSynch iterator(int type, long startTime, long endTime) {
         if (endTime <= startTime) {
             throw new IllegalArgumentException();
         }
-        List<Event> events = this.eventsByType.get(type);
-        return new EventIteratorSynch(lock, events, startTime, endTime);
+        TypeEvents typeEvents = this.eventsByType.get(type);
+        if (typeEvents == null) {
+            return new EventIteratorSynch(null, null, startTime, endTime);
+        }
+        return iterator(typeEvents, startTime, endTime);
+    }
+
+    /**
+     * Retrieves an iterator for events of all the types matching a glob pattern, merged in timestamp order.
+     * <p>
+     * Only the types starting with the part of the pattern before its first wildcard are looked at. Events with
+     * the same timestamp come in the order of the names of their types.
+     *
+     * @param pattern   A type name where {@code *} matches any sequence of characters, including none, and
+     *                  {@code ?} matches any single character.
+     * @param startTime Start timestamp (inclusive).
+     * @param endTime   End timestamp (exclusive).
+     */
+    public EventIterator queryMatching(String pattern, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        int wildcard = 0;
+        while (wildcard < pattern.length() && pattern.charAt(wildcard) != '*' && pattern.charAt(wildcard) != '?') {
+            wildcard++;
+        }
+        String prefix = pattern.substring(0, wildcard);
+        Pattern glob = glob(pattern);
+
+        List<EventIterator> iterators = new ArrayList<>();
+        for (String type : typeNames.tailSet(prefix)) {
+            if (!type.startsWith(prefix)) {
+                break;
+            }
+            if (glob.matcher(type).matches()) {
+                TypeEvents typeEvents = existingTypeEvents(type);
+                if (typeEvents != null) {
+                    iterators.add(iterator(typeEvents, startTime, endTime));
+                }
+            }
+        }
+        return new EventIteratorMerging(iterators);
+    }
+
+    /**
+     * Retrieves an iterator for events of every type, merged in timestamp order. Events with the same timestamp
+     * come in no particular order of types.
+     * <p>
+     * With the time index only the types with events in the rollup buckets of the window are queried, otherwise
+     * all of them are.
+     *
+     * @param startTime Start timestamp (inclusive).
+     * @param endTime   End timestamp (exclusive).
+     */
+    public EventIterator queryAllTypes(long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        List<EventIterator> iterators = new ArrayList<>();
+        if (timeIndex != null) {
+            BitSet types = timeIndex.types(startTime, endTime);
+            for (int type = types.nextSetBit(0); type >= 0; type = types.nextSetBit(type + 1)) {
+                TypeEvents typeEvents = eventsByType.get(type);
+                if (typeEvents != null) {
+                    iterators.add(iterator(typeEvents, startTime, endTime));
+                }
+            }
+        }
+        else {
+            for (String type : typeNames) {
+                TypeEvents typeEvents = existingTypeEvents(type);
+                if (typeEvents != null) {
+                    iterators.add(iterator(typeEvents, startTime, endTime));
+                }
+            }
+        }
+        return new EventIteratorMerging(iterators);
+    }
+
+    private static EventIteratorSynch iterator(TypeEvents typeEvents, long startTime, long endTime) {
+        return new EventIteratorSynch(typeEvents, typeEvents.events, typeEvents.rollups, startTime, endTime);
+    }
+
+    /**
+     * How many buckets of the time index have events, -1 if there is no index. For tests.
+     */
+    int timeIndexSize() {
+        return timeIndex != null ? timeIndex.size() : -1;
+    }
+
+    private static Pattern glob(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                if (literal < i) {
+                    regex.append(Pattern.quote(pattern.substring(literal, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                literal = i + 1;
+            }
+        }
+        if (literal < pattern.length()) {
+            regex.append(Pattern.quote(pattern.substring(literal)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    /**
+     * The events in range are read in chunks, each holding the lock of the type once, and parallel streams split the
+     * range at its middle event. Like the iterators, the stream sees concurrent changes.
+     */
+    @Override
+    public Stream<Event> stream(String type, long startTime, long endTime) {
+        EventIteratorSynch eventIterator = iterator(type, startTime, endTime);
+        return EventStreams.of(eventIterator, eventIterator.spliterator());
+    }
+
+    /**
+     * Two binary searches, no matter how many events are in range.
+     */
+    @Override
+    public long count(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        TypeEvents typeEvents = existingTypeEvents(type);
+        if (typeEvents == null) {
+            return 0;
+        }
+        synchronized (typeEvents) {
+            List<Event> events = typeEvents.events;
+            return SortedEvents.lowerBound(events, endTime) - SortedEvents.lowerBound(events, startTime);
+        }
+    }
+
+    /**
+     * When {@code startTime} and {@code bucketWidth} are multiples of the rollup width, the counts come from the
+     * rollup counters, only the events after the last multiple of the rollup width before {@code endTime} being
+     * searched. Otherwise each bucket costs two binary searches. Events are never iterated.
+     */
+    @Override
+    public long[] histogram(String type, long startTime, long endTime, long bucketWidth) {
+        long[] histogram = Histograms.create(startTime, endTime, bucketWidth);
+        TypeEvents typeEvents = existingTypeEvents(type);
+        if (typeEvents == null) {
+            return histogram;
+        }
+
+        synchronized (typeEvents) {
+            long searchedTime = startTime;
+            if (bucketWidth % rollupWidth == 0 && Math.floorMod(startTime, rollupWidth) == 0) {
+                searchedTime = Math.max(startTime, endTime - Math.floorMod(endTime, rollupWidth));
+                typeEvents.rollups.accumulate(startTime, searchedTime, bucketWidth, histogram);
+            }
+
+            List<Event> events = typeEvents.events;
+            int from = SortedEvents.lowerBound(events, searchedTime);
+            for (int bucket = (int) ((searchedTime - startTime) / bucketWidth); bucket < histogram.length; bucket++) {
+                int to = SortedEvents.lowerBound(events, Histograms.bucketEnd(startTime, endTime, bucketWidth, bucket));
+                histogram[bucket] += to - from;
+                from = to;
+            }
+        }
+        return histogram;
     }
 }
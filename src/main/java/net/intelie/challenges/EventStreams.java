@@ -0,0 +1,69 @@
+package net.intelie.challenges;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Bridges {@link EventIterator} to {@link Stream}.
+ */
+public final class EventStreams {
+
+    /**
+     * Order of the events of a query, reported by sorted spliterators.
+     */
+    public static final Comparator<Event> BY_TIMESTAMP = Comparator.comparingLong(Event::timestamp);
+
+    private EventStreams() {
+    }
+
+    /**
+     * A sequential stream reading the iterator. Its size is unknown, as the iterator reflects concurrent changes,
+     * and parallel streams can only split it in batches read one after the other.
+     * Closing the stream closes the iterator.
+     */
+    public static Stream<Event> of(EventIterator eventIterator) {
+        return of(eventIterator, new IteratorSpliterator(eventIterator));
+    }
+
+    /**
+     * A stream over the spliterator. Closing the stream closes the iterator.
+     */
+    public static Stream<Event> of(EventIterator eventIterator, Spliterator<Event> spliterator) {
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                eventIterator.close();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static class IteratorSpliterator extends Spliterators.AbstractSpliterator<Event> {
+        private final EventIterator eventIterator;
+
+        IteratorSpliterator(EventIterator eventIterator) {
+            super(Long.MAX_VALUE, ORDERED | SORTED | NONNULL);
+            this.eventIterator = eventIterator;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Event> action) {
+            if (eventIterator.moveNext()) {
+                action.accept(eventIterator.current());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public Comparator<? super Event> getComparator() {
+            return BY_TIMESTAMP;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package net.intelie.challenges;
+
+/**
+ * An interned event type: its name and a dense id, given by the {@link TypeDictionary}.
+ * <p>
+ * There is a single instance per name, so instances may be compared by identity.
+ */
+public final class EventType {
+    private final String name;
+    private final int id;
+
+    EventType(String name, int id) {
+        this.name = name;
+        this.id = id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the id of the type, from 0 up in the order types are first seen. Ids are only valid in this process.
+     */
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,76 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a writer among many readers, with a fair and an unfair read-write lock, and with the optimistic
+ * reads of a {@link java.util.concurrent.locks.StampedLock}.
+ * <p>
+ * An unfair lock lets readers in while a writer waits, so the tail latency of the writer is the one to look at.
+ * Readers and writer share the cores, run it with more threads than cores to see the readers competing.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FairnessBenchmarks {
+    private static final String TYPE = "type 1";
+
+    @State(Scope.Group)
+    public static class Populated {
+        @Param({"RW", "RW_UNFAIR", "OPTIMISTIC"})
+        public Benchmarks.Implementation implementation;
+
+        @Param({"100000"})
+        public int events;
+
+        @Param({"1000"})
+        public int window;
+
+        EventStore store;
+        long sequence;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            store = implementation.create();
+            for (int i = 0; i < events; i++) {
+                store.insert(new Event(TYPE, i));
+            }
+            sequence = events;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        Random random;
+
+        @Setup(Level.Trial)
+        public void init(ThreadParams threadParams) {
+            random = new Random(threadParams.getThreadIndex());
+        }
+    }
+
+    @Benchmark
+    @Group("manyReaders")
+    @GroupThreads(1)
+    public void writer(Populated populated) {
+        populated.store.insert(new Event(TYPE, populated.sequence++));
+    }
+
+    @Benchmark
+    @Group("manyReaders")
+    @GroupThreads(31)
+    public void reader(Populated populated, Reader reader, Blackhole blackhole) {
+        long start = reader.random.nextInt(populated.events - populated.window);
+        EventIterator eventIterator = populated.store.query(TYPE, start, start + populated.window);
+        while (eventIterator.moveNext()) {
+            blackhole.consume(eventIterator.current());
+        }
+    }
+}
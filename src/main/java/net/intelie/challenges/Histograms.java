@@ -0,0 +1,36 @@
+package net.intelie.challenges;
+
+/**
+ * Helpers for histograms of event counts over consecutive time buckets.
+ */
+public final class Histograms {
+
+    private Histograms() {
+    }
+
+    /**
+     * Creates an empty histogram covering {@code [startTime, endTime)} with buckets of {@code bucketWidth},
+     * the last one possibly cut short by {@code endTime}.
+     */
+    public static long[] create(long startTime, long endTime, long bucketWidth) {
+        if (endTime <= startTime || endTime - startTime < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("bucket width must be positive");
+        }
+        long buckets = (endTime - startTime - 1) / bucketWidth + 1;
+        if (buckets > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many buckets: " + buckets);
+        }
+        return new long[(int) buckets];
+    }
+
+    /**
+     * @return the end of the bucket, limited to {@code endTime}.
+     */
+    public static long bucketEnd(long startTime, long endTime, long bucketWidth, int bucket) {
+        long offset = (bucket + 1L) * bucketWidth;
+        return endTime - startTime <= offset ? endTime : startTime + offset;
+    }
+}
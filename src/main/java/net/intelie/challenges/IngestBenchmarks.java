@@ -0,0 +1,65 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of many writers inserting into an {@link EventStoreSynch}, directly or through a
+ * {@link RingBufferEventStore} with each wait strategy. Run it with more threads than one ({@code -t}) to see the
+ * writers competing, and with {@code -p ingest=DIRECT,PARK} on machines with few cores, where busy waiting takes
+ * the core from the consumer.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+public class IngestBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Ingest {
+        @Param({"DIRECT", "BUSY_SPIN", "YIELD", "PARK"})
+        public String ingest;
+
+        @Param({"1", "16"})
+        public int types;
+
+        EventStore store;
+
+        @Setup(Level.Iteration)
+        public void create() {
+            EventStoreSynch synch = new EventStoreSynch();
+            store = ingest.equals("DIRECT") ? synch
+                    : new RingBufferEventStore(synch, 4096, RingBufferEventStore.WaitStrategy.valueOf(ingest), false);
+        }
+
+        /**
+         * Applies what is left in the ring, out of the measurement.
+         */
+        @TearDown(Level.Iteration)
+        public void close() {
+            if (store instanceof RingBufferEventStore) {
+                ((RingBufferEventStore) store).close();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        String type;
+        long sequence;
+
+        @Setup(Level.Trial)
+        public void init(Ingest ingest, ThreadParams threadParams) {
+            type = "type " + threadParams.getThreadIndex() % ingest.types;
+        }
+    }
+
+    @Benchmark
+    public void insert(Ingest ingest, Writer writer) {
+        ingest.store.insert(new Event(writer.type, writer.sequence++));
+    }
+}
@@ -0,0 +1,83 @@
+package net.intelie.challenges;
+
+/**
+ * An operation of a {@link WriteAheadLog}.
+ */
+final class LogRecord {
+    static final byte INSERT = 1;
+    static final byte REMOVE_ALL = 2;
+    static final byte REMOVE = 3;
+
+    final byte operation;
+    final String type;
+    final long timestamp;
+    final Payload payload;
+    /* position of a removed event among the events of the type with its timestamp, -1 if not logged */
+    final int ordinal;
+
+    LogRecord(byte operation, String type, long timestamp) {
+        this(operation, type, timestamp, Payload.EMPTY);
+    }
+
+    LogRecord(byte operation, String type, long timestamp, Payload payload) {
+        this(operation, type, timestamp, payload, -1);
+    }
+
+    LogRecord(byte operation, String type, long timestamp, Payload payload, int ordinal) {
+        this.operation = operation;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.payload = payload;
+        this.ordinal = ordinal;
+    }
+
+    /**
+     * Applies this operation to a store.
+     */
+    void apply(EventStore store) {
+        switch (operation) {
+            case INSERT:
+                store.insert(new Event(type, timestamp, payload));
+                break;
+            case REMOVE_ALL:
+                store.removeAll(type);
+                break;
+            case REMOVE:
+                if (timestamp < Long.MAX_VALUE && (ordinal < 0 || !remove(store, ordinal))) {
+                    remove(store, -1);
+                }
+                break;
+            default:
+                throw new IllegalStateException("unknown operation " + operation);
+        }
+    }
+
+    /**
+     * Removes the event at {@code position} among the events with the timestamp, if it has the payload logged, or
+     * the first one with that payload if {@code position} is negative. Replaying the log rebuilds the same events in
+     * the same order, so the event at the logged position is the one removed; records written before positions
+     * were logged have no payload and remove the first event.
+     *
+     * @return false if there is no such event.
+     */
+    private boolean remove(EventStore store, int position) {
+        try (EventIterator eventIterator = store.query(type, timestamp, timestamp + 1)) {
+            for (int i = 0; eventIterator.moveNext(); i++) {
+                if (position < 0 || i == position) {
+                    if (eventIterator.current().payload().equals(payload)) {
+                        eventIterator.remove();
+                        return true;
+                    }
+                    if (i == position) {
+                        return false;
+                    }
+                }
+            }
+            return false;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package net.intelie.challenges;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Events of a single type stored off-heap, in a memory-mapped file, sorted by timestamp.
+ * <p>
+ * The file has a 16 bytes header (magic number, type id and event count) followed by fixed-width records
+ * of 16 bytes: timestamp, type id and payload offset. The store rejects events with a payload, so the payload
+ * offset is always {@link #NO_PAYLOAD}, reserved for a payload file.
+ * <p>
+ * Not thread-safe, callers synchronize on the instance itself.
+ */
+final class MappedEvents implements TimestampColumn {
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+    static final int NO_PAYLOAD = -1;
+
+    private static final int MAGIC = 0x45565453;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    private final EventType type;
+    private final int typeId;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+
+    private long version;
+
+    private MappedEvents(String type, int typeId, FileChannel channel) {
+        this.type = TypeDictionary.intern(type);
+        this.typeId = typeId;
+        this.channel = channel;
+    }
+
+    /**
+     * Maps the file of a type, creating it if needed. Events already in the file are kept.
+     */
+    static MappedEvents open(Path file, String type, int typeId) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedEvents events = new MappedEvents(type, typeId, channel);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                events.map(INITIAL_CAPACITY);
+                events.buffer.putInt(0, MAGIC);
+                events.buffer.putInt(4, typeId);
+                events.buffer.putLong(8, 0);
+            }
+            else {
+                long capacity = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+                if (capacity > MAX_CAPACITY) {
+                    throw new IOException("event file too large: " + file);
+                }
+                events.map((int) capacity);
+                if (events.buffer.getInt(0) != MAGIC || events.buffer.getInt(4) != typeId) {
+                    throw new IOException("not an event file of type " + typeId + ": " + file);
+                }
+                /* a torn or corrupt header must not let reads go past the mapping */
+                long size = events.buffer.getLong(8);
+                if (size < 0 || size > capacity) {
+                    throw new IOException("corrupt event file, " + size + " events in room for " + capacity
+                            + ": " + file);
+                }
+                events.size = (int) size;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return events;
+    }
+
+    private void map(int capacity) throws IOException {
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        this.capacity = capacity;
+    }
+
+    EventType type() {
+        return type;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Incremented on every modification, so iterators can tell if their cached position is still valid.
+     */
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public int payload(int index) {
+        return PayloadCodec.NO_PAYLOAD;
+    }
+
+    @Override
+    public long payloadVersion() {
+        return 0;
+    }
+
+    @Override
+    public byte[] payloadBytes() {
+        return null;
+    }
+
+    @Override
+    public String[] payloadStrings() {
+        return null;
+    }
+
+    @Override
+    public long timestamp(int index) {
+        return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    @Override
+    public int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamp(mid) < timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamp(mid) <= timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    void insert(long timestamp) {
+        if (size == capacity) {
+            grow();
+        }
+
+        int index = upperBound(timestamp);
+        for (int i = size; i > index; i--) {
+            copyRecord(i - 1, i);
+        }
+
+        int position = HEADER_SIZE + index * RECORD_SIZE;
+        buffer.putLong(position, timestamp);
+        buffer.putInt(position + 8, typeId);
+        buffer.putInt(position + 12, NO_PAYLOAD);
+        setSize(size + 1);
+    }
+
+    @Override
+    public void remove(int index) {
+        for (int i = index + 1; i < size; i++) {
+            copyRecord(i, i - 1);
+        }
+        setSize(size - 1);
+    }
+
+    void clear() {
+        setSize(0);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void copyRecord(int from, int to) {
+        int source = HEADER_SIZE + from * RECORD_SIZE;
+        int target = HEADER_SIZE + to * RECORD_SIZE;
+        buffer.putLong(target, buffer.getLong(source));
+        buffer.putLong(target + 8, buffer.getLong(source + 8));
+    }
+
+    private void setSize(int size) {
+        this.size = size;
+        buffer.putLong(8, size);
+        version++;
+    }
+
+    private void grow() {
+        if (capacity == MAX_CAPACITY) {
+            throw new IllegalStateException("no room left for events of type " + type);
+        }
+        try {
+            map((int) Math.min(MAX_CAPACITY, capacity * 2L));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
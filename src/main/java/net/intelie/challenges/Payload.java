@@ -0,0 +1,73 @@
+package net.intelie.challenges;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Attributes of an {@link Event}: where it came from, a measured value and free-form tags.
+ * <p>
+ * Immutable. Stores may keep it encoded, in which case each {@link EventIterator#current()} decodes a new
+ * instance.
+ */
+public final class Payload {
+    public static final Payload EMPTY = new Payload(null, 0, Collections.emptyList());
+
+    private final String source;
+    private final double value;
+    private final List<String> tags;
+
+    /**
+     * @param source may be null.
+     */
+    public Payload(String source, double value, List<String> tags) {
+        this.source = source;
+        this.value = value;
+        this.tags = tags.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(tags));
+    }
+
+    public static Payload of(String source, double value, String... tags) {
+        return new Payload(source, value, Arrays.asList(tags));
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public double value() {
+        return value;
+    }
+
+    public List<String> tags() {
+        return tags;
+    }
+
+    public boolean isEmpty() {
+        return source == null && Double.doubleToRawLongBits(value) == 0 && tags.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Payload)) {
+            return false;
+        }
+        Payload other = (Payload) o;
+        return Double.compare(value, other.value) == 0 && Objects.equals(source, other.source)
+                && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(source, value, tags);
+    }
+
+    @Override
+    public String toString() {
+        return "Payload{source=" + source + ", value=" + value + ", tags=" + tags + "}";
+    }
+}
@@ -0,0 +1,151 @@
+package net.intelie.challenges;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only bytes holding encoded {@link Payload payloads}, with an optional dictionary replacing repeated
+ * strings, such as sources and tags, by small ids.
+ * <p>
+ * Bytes and strings already written never change: growing or compacting the arena moves them to new arrays. So a
+ * reader holding the arrays returned by {@link #bytes()} and {@link #strings()} may decode what was there without
+ * locks.
+ * <p>
+ * Not thread-safe, access is guarded by the owner of the arena.
+ */
+final class PayloadArena {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int size;
+    private int garbage;
+
+    private final Map<String, Integer> stringIds;
+    private String[] strings;
+    private int stringCount;
+
+    PayloadArena(boolean dictionary) {
+        this.stringIds = dictionary ? new HashMap<>() : null;
+        this.strings = dictionary ? new String[16] : null;
+    }
+
+    /**
+     * @return the offset of the payload, {@link PayloadCodec#NO_PAYLOAD} if it is empty.
+     */
+    int append(Payload payload) {
+        return PayloadCodec.encode(payload, this);
+    }
+
+    Payload get(int offset) {
+        return PayloadCodec.decode(bytes, offset, strings);
+    }
+
+    /**
+     * Counts the payload as garbage, to be discarded by the next {@link #compact}.
+     */
+    void release(int offset) {
+        if (offset != PayloadCodec.NO_PAYLOAD) {
+            garbage += PayloadCodec.length(bytes, offset, strings);
+        }
+    }
+
+    /**
+     * Rewrites the live payloads to a new array once at least half of the bytes are garbage. The dictionary is
+     * rebuilt too, keeping only the strings the live payloads use, so strings of removed events don't pile up.
+     *
+     * @param offsets the offsets of the live payloads, updated to the new positions.
+     * @return whether the payloads were moved.
+     */
+    boolean compact(int[] offsets, int count) {
+        if (garbage < INITIAL_CAPACITY || garbage * 2 < size) {
+            return false;
+        }
+        byte[] old = bytes;
+        String[] oldStrings = strings;
+        bytes = new byte[Math.max(INITIAL_CAPACITY, size - garbage)];
+        size = 0;
+        garbage = 0;
+        if (stringIds != null) {
+            stringIds.clear();
+            strings = new String[16];
+            stringCount = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            if (offsets[i] == PayloadCodec.NO_PAYLOAD) {
+                continue;
+            }
+            if (stringIds != null) {
+                /* ids change with the dictionary, so the payload is encoded again */
+                offsets[i] = PayloadCodec.encode(PayloadCodec.decode(old, offsets[i], oldStrings), this);
+            }
+            else {
+                int length = PayloadCodec.length(old, offsets[i], null);
+                System.arraycopy(old, offsets[i], bytes, size, length);
+                offsets[i] = size;
+                size += length;
+            }
+        }
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+        garbage = 0;
+    }
+
+    boolean hasDictionary() {
+        return stringIds != null;
+    }
+
+    int stringId(String string) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            if (stringCount == strings.length) {
+                strings = Arrays.copyOf(strings, stringCount * 2);
+            }
+            id = stringCount;
+            strings[stringCount++] = string;
+            stringIds.put(string, id);
+        }
+        return id;
+    }
+
+    void put(int b) {
+        if (size == bytes.length) {
+            bytes = Arrays.copyOf(bytes, size * 2);
+        }
+        bytes[size++] = (byte) b;
+    }
+
+    void put(byte[] b) {
+        if (bytes.length - size < b.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + b.length));
+        }
+        System.arraycopy(b, 0, bytes, size, b.length);
+        size += b.length;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the dictionary, indexed by id, null if the arena has none. Ids never change until the next
+     * {@link #compact}, which starts a new array.
+     */
+    String[] strings() {
+        return strings;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return how many strings the dictionary holds.
+     */
+    int stringCount() {
+        return stringCount;
+    }
+}
@@ -0,0 +1,95 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costs of the {@link Payload} encoding: throughput of encoding and decoding, and of iterating a
+ * {@link EventStoreColumnar} that decodes the payloads lazily. The bytes per event taken by each encoding are
+ * printed at the end of the trial.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayloadBenchmarks {
+    private static final int EVENTS = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Payloads {
+        @Param({"16", "100000"})
+        public int sources;
+
+        Payload[] payloads;
+        PayloadArena arena;
+        int[] offsets;
+        EventStoreColumnar store;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            Random random = new Random(42);
+            String[] units = {"celsius", "bar", "rpm"};
+            payloads = new Payload[EVENTS];
+            arena = new PayloadArena(true);
+            offsets = new int[EVENTS];
+            store = new EventStoreColumnar();
+            for (int i = 0; i < EVENTS; i++) {
+                double value = random.nextBoolean() ? random.nextInt(1000) : random.nextDouble() * 1000;
+                payloads[i] = Payload.of("sensor " + random.nextInt(sources), value, units[random.nextInt(3)]);
+                offsets[i] = arena.append(payloads[i]);
+                store.insert(new Event("type 1", i, payloads[i]));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void report() {
+            PayloadArena inline = new PayloadArena(false);
+            for (Payload payload : payloads) {
+                inline.append(payload);
+            }
+            System.out.printf("%nbytes per event: %.2f with dictionary, %.2f inline%n",
+                    (double) arena.size() / EVENTS, (double) inline.size() / EVENTS);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int encode(Payloads payloads) {
+        PayloadArena arena = new PayloadArena(true);
+        for (Payload payload : payloads.payloads) {
+            arena.append(payload);
+        }
+        return arena.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void decode(Payloads payloads, Blackhole blackhole) {
+        for (int offset : payloads.offsets) {
+            blackhole.consume(payloads.arena.get(offset));
+        }
+    }
+
+    /**
+     * Reads only the timestamps, so no payload is decoded.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void iterateTimestamps(Payloads payloads, Blackhole blackhole) {
+        EventIterator eventIterator = payloads.store.query("type 1", 0, Long.MAX_VALUE);
+        while (eventIterator.moveNext()) {
+            blackhole.consume(eventIterator.current().timestamp());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void iteratePayloads(Payloads payloads, Blackhole blackhole) {
+        EventIterator eventIterator = payloads.store.query("type 1", 0, Long.MAX_VALUE);
+        while (eventIterator.moveNext()) {
+            blackhole.consume(eventIterator.current().payload());
+        }
+    }
+}
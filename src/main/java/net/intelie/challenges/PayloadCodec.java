@@ -0,0 +1,159 @@
+package net.intelie.challenges;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact binary form of a {@link Payload}.
+ * <p>
+ * A byte of flags tells which fields follow: the source, if any, then the value, as a zig-zag varint when it is
+ * a whole number or as the 8 bytes of the double otherwise, nothing when it is zero. Then the number of tags and
+ * the tags, as varints. Strings are written as their ids in the dictionary of the {@link PayloadArena}, or, for
+ * arenas without dictionary, as their length and UTF-8 bytes. An empty payload takes no bytes at all.
+ */
+final class PayloadCodec {
+    static final int NO_PAYLOAD = -1;
+
+    private static final int SOURCE = 1;
+    private static final int LONG_VALUE = 2;
+    private static final int DOUBLE_VALUE = 4;
+
+    private PayloadCodec() {
+    }
+
+    /**
+     * Appends the payload to the arena.
+     *
+     * @return where it starts, or {@link #NO_PAYLOAD} if it is empty.
+     */
+    static int encode(Payload payload, PayloadArena arena) {
+        if (payload.isEmpty()) {
+            return NO_PAYLOAD;
+        }
+
+        int offset = arena.size();
+        double value = payload.value();
+        long whole = (long) value;
+        int flags = payload.source() != null ? SOURCE : 0;
+        if (Double.doubleToRawLongBits(value) != 0) {
+            boolean exact = Double.doubleToRawLongBits((double) whole) == Double.doubleToRawLongBits(value)
+                    && whole != Long.MIN_VALUE && whole != Long.MAX_VALUE;
+            flags |= exact ? LONG_VALUE : DOUBLE_VALUE;
+        }
+
+        arena.put(flags);
+        if ((flags & SOURCE) != 0) {
+            writeString(payload.source(), arena);
+        }
+        if ((flags & LONG_VALUE) != 0) {
+            writeVarint((whole << 1) ^ (whole >> 63), arena);
+        }
+        else if ((flags & DOUBLE_VALUE) != 0) {
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                arena.put((int) (bits >>> shift));
+            }
+        }
+        writeVarint(payload.tags().size(), arena);
+        for (String tag : payload.tags()) {
+            writeString(tag, arena);
+        }
+        return offset;
+    }
+
+    private static void writeString(String string, PayloadArena arena) {
+        if (arena.hasDictionary()) {
+            writeVarint(arena.stringId(string), arena);
+        }
+        else {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length, arena);
+            arena.put(utf8);
+        }
+    }
+
+    private static void writeVarint(long value, PayloadArena arena) {
+        while ((value & ~0x7FL) != 0) {
+            arena.put((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        arena.put((int) value);
+    }
+
+    /**
+     * @param strings the dictionary of the arena the bytes came from, null if it has none.
+     */
+    static Payload decode(byte[] bytes, int offset, String[] strings) {
+        if (offset == NO_PAYLOAD) {
+            return Payload.EMPTY;
+        }
+        return new Reader(bytes, offset, strings).payload();
+    }
+
+    /**
+     * @return how many bytes the payload at {@code offset} takes.
+     */
+    static int length(byte[] bytes, int offset, String[] strings) {
+        Reader reader = new Reader(bytes, offset, strings);
+        reader.payload();
+        return reader.position - offset;
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private final String[] strings;
+        private int position;
+
+        Reader(byte[] bytes, int offset, String[] strings) {
+            this.bytes = bytes;
+            this.position = offset;
+            this.strings = strings;
+        }
+
+        Payload payload() {
+            int flags = bytes[position++];
+            String source = (flags & SOURCE) != 0 ? string() : null;
+            double value = 0;
+            if ((flags & LONG_VALUE) != 0) {
+                long zigzag = varint();
+                value = (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            else if ((flags & DOUBLE_VALUE) != 0) {
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | (bytes[position++] & 0xFF);
+                }
+                value = Double.longBitsToDouble(bits);
+            }
+            int count = (int) varint();
+            List<String> tags = count == 0 ? Collections.emptyList() : new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tags.add(string());
+            }
+            return new Payload(source, value, tags);
+        }
+
+        private String string() {
+            int value = (int) varint();
+            if (strings != null) {
+                return strings[value];
+            }
+            String string = new String(bytes, position, value, StandardCharsets.UTF_8);
+            position += value;
+            return string;
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package net.intelie.challenges;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the retention of an {@link EventStoreSegmented} has evicted so far.
+ */
+public final class RetentionMetrics {
+    private final AtomicLong evictedSegments = new AtomicLong();
+    private final AtomicLong evictedEvents = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+
+    void evicted(Segment segment) {
+        evictedSegments.incrementAndGet();
+        evictedEvents.addAndGet(segment.size() - segment.deleted());
+        reclaimedBytes.addAndGet(segment.bytes());
+    }
+
+    public long evictedSegments() {
+        return evictedSegments.get();
+    }
+
+    public long evictedEvents() {
+        return evictedEvents.get();
+    }
+
+    /**
+     * @return the memory released by the evicted segments, as estimated by the store.
+     */
+    public long reclaimedBytes() {
+        return reclaimedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "evicted " + evictedSegments() + " segments, " + evictedEvents() + " events, "
+                + reclaimedBytes() + " bytes";
+    }
+}
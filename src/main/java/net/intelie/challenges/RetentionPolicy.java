@@ -0,0 +1,110 @@
+package net.intelie.challenges;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits of how much an {@link EventStoreSegmented} keeps: a maximum age of the events, for all types or per
+ * type, a maximum number of events and a maximum estimated memory, both for all types together.
+ * <p>
+ * Immutable, each {@code with} method returns a new policy.
+ */
+public final class RetentionPolicy {
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private static final long DEFAULT_EVICTION_PERIOD = 1000;
+    private static final RetentionPolicy UNLIMITED_POLICY = new RetentionPolicy(
+            UNLIMITED, new HashMap<>(), UNLIMITED, UNLIMITED, System::currentTimeMillis, DEFAULT_EVICTION_PERIOD);
+
+    private final long maxAge;
+    private final Map<String, Long> maxAgeByType;
+    private final long maxEvents;
+    private final long maxBytes;
+    private final LongSupplier clock;
+    private final long evictionPeriod;
+
+    private RetentionPolicy(long maxAge, Map<String, Long> maxAgeByType, long maxEvents, long maxBytes,
+                            LongSupplier clock, long evictionPeriod) {
+        this.maxAge = maxAge;
+        this.maxAgeByType = maxAgeByType;
+        this.maxEvents = maxEvents;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        this.evictionPeriod = evictionPeriod;
+    }
+
+    public static RetentionPolicy unlimited() {
+        return UNLIMITED_POLICY;
+    }
+
+    /**
+     * Events with timestamp older than the clock minus {@code maxAge} are evicted, unless their type has its own
+     * maximum age.
+     */
+    public RetentionPolicy withMaxAge(long maxAge) {
+        return new RetentionPolicy(positive(maxAge), maxAgeByType, maxEvents, maxBytes, clock, evictionPeriod);
+    }
+
+    public RetentionPolicy withMaxAge(String type, long maxAge) {
+        Map<String, Long> maxAgeByType = new HashMap<>(this.maxAgeByType);
+        maxAgeByType.put(type, positive(maxAge));
+        return new RetentionPolicy(this.maxAge, maxAgeByType, maxEvents, maxBytes, clock, evictionPeriod);
+    }
+
+    public RetentionPolicy withMaxEvents(long maxEvents) {
+        return new RetentionPolicy(maxAge, maxAgeByType, positive(maxEvents), maxBytes, clock, evictionPeriod);
+    }
+
+    /**
+     * @param maxBytes limit of the memory used by the events, as estimated by the store.
+     */
+    public RetentionPolicy withMaxBytes(long maxBytes) {
+        return new RetentionPolicy(maxAge, maxAgeByType, maxEvents, positive(maxBytes), clock, evictionPeriod);
+    }
+
+    /**
+     * @param clock the current time, in the same unit as the timestamps, {@link System#currentTimeMillis} by default.
+     */
+    public RetentionPolicy withClock(LongSupplier clock) {
+        return new RetentionPolicy(maxAge, maxAgeByType, maxEvents, maxBytes, clock, evictionPeriod);
+    }
+
+    /**
+     * @param evictionPeriod milliseconds between the runs of the background evictor, 1000 by default.
+     */
+    public RetentionPolicy withEvictionPeriod(long evictionPeriod) {
+        return new RetentionPolicy(maxAge, maxAgeByType, maxEvents, maxBytes, clock, positive(evictionPeriod));
+    }
+
+    private static long positive(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("limits must be positive");
+        }
+        return value;
+    }
+
+    long maxAge(String type) {
+        return maxAgeByType.getOrDefault(type, maxAge);
+    }
+
+    long maxEvents() {
+        return maxEvents;
+    }
+
+    long maxBytes() {
+        return maxBytes;
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    long evictionPeriod() {
+        return evictionPeriod;
+    }
+
+    boolean isUnlimited() {
+        return maxAge == UNLIMITED && maxAgeByType.isEmpty() && maxEvents == UNLIMITED && maxBytes == UNLIMITED;
+    }
+}
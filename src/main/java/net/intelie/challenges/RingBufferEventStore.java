@@ -0,0 +1,335 @@
+package net.intelie.challenges;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EventStore decorator taking the inserts of many threads into a preallocated ring buffer, applied to the
+ * decorated store in batches by a single thread, so writers never compete for the locks of the store.
+ * <p>
+ * An insert returns once its event is in the ring, before the store has it. {@link #flush} waits until every insert
+ * returned before it is applied. Queries, counts and histograms flush first, and so do the iterators on every
+ * {@link EventIterator#moveNext}, unless told not to. {@link #removeAll} always flushes, so it removes the events
+ * inserted before it.
+ * <p>
+ * Writers claim slots by advancing a shared sequence, then publish each slot marking it with its sequence. The
+ * consumer takes the published slots in sequence order and frees them once applied. When the ring is full, writers
+ * wait for room. Inserts racing with {@link #close} may be lost.
+ * <p>
+ * If the consumer dies, on an {@link Error} from the store or after {@link #close}, the store is broken: inserts and
+ * flushes throw instead of waiting for it.
+ */
+public class RingBufferEventStore implements EventStore, Closeable {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long PARK_NANOS = 10_000;
+
+    /**
+     * How threads wait for events to apply, for room in the ring or for a flush.
+     */
+    public enum WaitStrategy {
+        /**
+         * Lowest latency, but each waiting thread keeps a core busy.
+         */
+        BUSY_SPIN {
+            @Override
+            void idle() {
+            }
+        },
+        YIELD {
+            @Override
+            void idle() {
+                Thread.yield();
+            }
+        },
+        /**
+         * The consumer sleeps until an event is published, the other waiting threads sleep briefly at a time.
+         */
+        PARK {
+            @Override
+            void idle() {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        };
+
+        abstract void idle();
+    }
+
+    private final EventStore store;
+    private final Event[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final boolean flushBeforeQuery;
+
+    /* the next sequence to claim */
+    private final AtomicLong claimed = new AtomicLong();
+    /* every sequence below it is applied to the store */
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Thread consumer;
+    private volatile boolean sleeping = false;
+    private volatile boolean closed = false;
+    /* set once the consumer is gone, nothing claimed afterwards is applied */
+    private volatile boolean broken = false;
+    private volatile Throwable cause;
+
+    public RingBufferEventStore(EventStore store) {
+        this(store, DEFAULT_CAPACITY, WaitStrategy.PARK, true);
+    }
+
+    /**
+     * @param capacity         events the ring holds, a power of two.
+     * @param flushBeforeQuery whether queries, their iterators, counts and histograms see every insert returned
+     *                         before them.
+     */
+    public RingBufferEventStore(EventStore store, int capacity, WaitStrategy waitStrategy, boolean flushBeforeQuery) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.store = store;
+        this.slots = new Event[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+        this.flushBeforeQuery = flushBeforeQuery;
+        this.consumer = new Thread(this::consume, "event-ingest");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    @Override
+    public void insert(Event event) {
+        publish(claim(1), event);
+    }
+
+    /**
+     * The events take consecutive slots, so they are usually applied together.
+     */
+    @Override
+    public void insertAll(Collection<Event> events) {
+        Iterator<Event> iterator = events.iterator();
+        int remaining = events.size();
+        while (remaining > 0) {
+            int count = Math.min(remaining, slots.length);
+            long first = claim(count);
+            for (int i = 0; i < count; i++) {
+                publish(first + i, iterator.next());
+            }
+            remaining -= count;
+        }
+    }
+
+    private long claim(int count) {
+        while (true) {
+            if (closed) {
+                throw new IllegalStateException("store is closed");
+            }
+            checkConsumer();
+            long first = claimed.get();
+            if (first + count - applied.get() > slots.length) {
+                /* the ring is full */
+                waitStrategy.idle();
+            }
+            else if (claimed.compareAndSet(first, first + count)) {
+                return first;
+            }
+        }
+    }
+
+    private void publish(long sequence, Event event) {
+        int slot = (int) sequence & mask;
+        slots[slot] = event;
+        published.set(slot, sequence);
+        if (sleeping) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void checkConsumer() {
+        if (broken) {
+            throw new IllegalStateException(closed ? "store is closed" : "the consumer stopped", cause);
+        }
+    }
+
+    private void consume() {
+        try {
+            consumeUntilClosed();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            cause = e;
+        }
+        finally {
+            broken = true;
+        }
+    }
+
+    private void consumeUntilClosed() {
+        List<Event> batch = new ArrayList<>(slots.length);
+        long next = 0;
+        while (true) {
+            if (published.get((int) next & mask) != next) {
+                if (closed && claimed.get() == next) {
+                    return;
+                }
+                await(next);
+                continue;
+            }
+
+            while (batch.size() < slots.length) {
+                int slot = (int) next & mask;
+                if (published.get(slot) != next) {
+                    break;
+                }
+                batch.add(slots[slot]);
+                slots[slot] = null;
+                next++;
+            }
+            try {
+                store.insertAll(batch);
+            } catch (RuntimeException e) {
+                /* the consumer goes on, the events of the batch are lost */
+                failure.compareAndSet(null, e);
+            }
+            batch.clear();
+            applied.set(next);
+        }
+    }
+
+    private void await(long next) {
+        if (waitStrategy != WaitStrategy.PARK) {
+            waitStrategy.idle();
+            return;
+        }
+        sleeping = true;
+        /* published meanwhile, before the writer could see it sleeping */
+        if (published.get((int) next & mask) != next && !closed) {
+            LockSupport.park(this);
+        }
+        sleeping = false;
+    }
+
+    /**
+     * Waits until every insert returned before the call is applied to the store.
+     *
+     * @throws IllegalStateException if the store failed to apply some of the inserts since the last flush, or if
+     *                               the consumer stopped before applying them.
+     */
+    public void flush() {
+        long target = claimed.get();
+        while (applied.get() < target) {
+            if (broken && applied.get() < target) {
+                throw new IllegalStateException("the consumer stopped before applying inserts", cause);
+            }
+            waitStrategy.idle();
+        }
+        Throwable e = failure.getAndSet(null);
+        if (e != null) {
+            throw new IllegalStateException("the store failed to apply inserts", e);
+        }
+    }
+
+    @Override
+    public void removeAll(String type) {
+        flush();
+        store.removeAll(type);
+    }
+
+    @Override
+    public EventIterator query(String type, long startTime, long endTime) {
+        flushIfAsked();
+        return iterator(store.query(type, startTime, endTime));
+    }
+
+    @Override
+    public EventIterator query(Collection<String> types, long startTime, long endTime) {
+        flushIfAsked();
+        return iterator(store.query(types, startTime, endTime));
+    }
+
+    @Override
+    public long count(String type, long startTime, long endTime) {
+        flushIfAsked();
+        return store.count(type, startTime, endTime);
+    }
+
+    @Override
+    public long[] histogram(String type, long startTime, long endTime, long bucketWidth) {
+        flushIfAsked();
+        return store.histogram(type, startTime, endTime, bucketWidth);
+    }
+
+    private void flushIfAsked() {
+        if (flushBeforeQuery) {
+            flush();
+        }
+    }
+
+    private EventIterator iterator(EventIterator eventIterator) {
+        return flushBeforeQuery ? new FlushingEventIterator(eventIterator) : eventIterator;
+    }
+
+    /**
+     * Applies the events left in the ring and stops the consumer. The decorated store is not closed.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sees the inserts returned before each step, as live iterators of the decorated store would.
+     */
+    private class FlushingEventIterator implements EventIterator {
+        private final EventIterator eventIterator;
+
+        FlushingEventIterator(EventIterator eventIterator) {
+            this.eventIterator = eventIterator;
+        }
+
+        @Override
+        public boolean moveNext() {
+            flush();
+            return eventIterator.moveNext();
+        }
+
+        @Override
+        public Event current() {
+            return eventIterator.current();
+        }
+
+        @Override
+        public long currentTimestamp() {
+            return eventIterator.currentTimestamp();
+        }
+
+        @Override
+        public void remove() {
+            eventIterator.remove();
+        }
+
+        @Override
+        public void close() throws Exception {
+            eventIterator.close();
+        }
+    }
+}
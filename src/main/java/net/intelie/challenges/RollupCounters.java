@@ -0,0 +1,112 @@
+package net.intelie.challenges;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counts of events of a type per time bucket of a fixed width, kept up to date on every change, so histograms
+ * with buckets multiple of that width are answered without looking at the events.
+ * <p>
+ * When given a {@link TimeIndex}, they tell it the buckets where the type starts or stops having events.
+ * <p>
+ * Not thread-safe, access is guarded by the owner of the events.
+ */
+final class RollupCounters {
+    private final long width;
+    private final TreeMap<Long, long[]> counts = new TreeMap<>();
+    private final TimeIndex index;
+    private final int type;
+
+    /* the bucket last counted, so appends to it look up and box nothing */
+    private long lastBucket;
+    private long[] lastCount;
+    /* the bucket last discounted, usually the oldest one, as a window of the latest events slides */
+    private long removedBucket;
+    private long[] removedCount;
+
+    RollupCounters(long width) {
+        this(width, null, 0);
+    }
+
+    /**
+     * @param index may be null.
+     * @param type  the id of the type counted, as known by the index.
+     */
+    RollupCounters(long width, TimeIndex index, int type) {
+        this.width = width;
+        this.index = index;
+        this.type = type;
+    }
+
+    void increment(long timestamp) {
+        long bucket = Math.floorDiv(timestamp, width);
+        if (lastCount != null && bucket == lastBucket) {
+            lastCount[0]++;
+            return;
+        }
+        long[] count = counts.get(bucket);
+        if (count == null) {
+            count = new long[1];
+            counts.put(bucket, count);
+            if (index != null) {
+                index.add(bucket, type);
+            }
+        }
+        count[0]++;
+        lastBucket = bucket;
+        lastCount = count;
+    }
+
+    void decrement(long timestamp) {
+        long bucket = Math.floorDiv(timestamp, width);
+        long[] count;
+        if (lastCount != null && bucket == lastBucket) {
+            count = lastCount;
+        }
+        else if (removedCount != null && bucket == removedBucket) {
+            count = removedCount;
+        }
+        else {
+            count = counts.get(bucket);
+            removedBucket = bucket;
+            removedCount = count;
+        }
+        if (count != null && --count[0] == 0) {
+            counts.remove(bucket);
+            if (count == lastCount) {
+                lastCount = null;
+            }
+            if (count == removedCount) {
+                removedCount = null;
+            }
+            if (index != null) {
+                index.remove(bucket, type);
+            }
+        }
+    }
+
+    /**
+     * Forgets all the counts, for events discarded at once.
+     */
+    void clear() {
+        if (index != null) {
+            for (Long bucket : counts.keySet()) {
+                index.remove(bucket, type);
+            }
+        }
+        counts.clear();
+        lastCount = null;
+        removedCount = null;
+    }
+
+    /**
+     * Adds the counts of {@code [startTime, endTime)} to the histogram starting at {@code startTime}.
+     * Both times and {@code bucketWidth} must be multiples of the width of these counters.
+     */
+    void accumulate(long startTime, long endTime, long bucketWidth, long[] histogram) {
+        for (Map.Entry<Long, long[]> entry : counts.subMap(startTime / width, endTime / width).entrySet()) {
+            long bucketStart = entry.getKey() * width;
+            histogram[(int) ((bucketStart - startTime) / bucketWidth)] += entry.getValue()[0];
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package net.intelie.challenges;
+
+import java.util.Arrays;
+
+/**
+ * A chunk of events of a single type, sorted by timestamp.
+ * <p>
+ * The head segment (the one holding the most recent events) is mutated in place, while sealed
+ * segments are never changed: every modification of a sealed segment produces a new one. As
+ * segments have a bounded size, both kinds of modification have a bounded cost. A head pinned
+ * by a snapshot is copied on modification too, until the snapshot releases it.
+ * <p>
+ * Removing from a sealed segment does not copy its events: the new segment shares them and only
+ * marks the removed one in a bitmap of tombstones. Readers skip the events marked, and the next
+ * copy of the segment, by an insert, a split or a compaction, leaves them out.
+ * <p>
+ * Not thread-safe, access is guarded by the owning {@link SegmentedEvents}.
+ */
+final class Segment {
+    /*
+     * Memory estimates for a 64 bit JVM with compressed references. The type of an event is not counted, as
+     * events of a type usually share it.
+     */
+    private static final int SEGMENT_BYTES = 40;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int EVENT_BYTES = 24;
+
+    private Event[] events;
+    private int size;
+    private final boolean sealed;
+    private final long[] tombstones;
+    private final int deleted;
+    private int pins;
+
+    Segment(int initialCapacity) {
+        this(new Event[initialCapacity], 0, false);
+    }
+
+    private Segment(Event[] events, int size, boolean sealed) {
+        this(events, size, sealed, null, 0);
+    }
+
+    private Segment(Event[] events, int size, boolean sealed, long[] tombstones, int deleted) {
+        this.events = events;
+        this.size = size;
+        this.sealed = sealed;
+        this.tombstones = tombstones;
+        this.deleted = deleted;
+    }
+
+    /**
+     * @return how many events are stored, including the ones marked as deleted.
+     */
+    int size() {
+        return size;
+    }
+
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * @return how many events are marked as deleted.
+     */
+    int deleted() {
+        return deleted;
+    }
+
+    /**
+     * @return an estimate of the memory used by this segment and its events.
+     */
+    long bytes() {
+        long bytes = SEGMENT_BYTES + ARRAY_HEADER_BYTES + (long) events.length * REFERENCE_BYTES
+                + (long) size * EVENT_BYTES;
+        if (tombstones != null) {
+            bytes += ARRAY_HEADER_BYTES + tombstones.length * 8L;
+        }
+        return bytes;
+    }
+
+    boolean isDeleted(int index) {
+        return tombstones != null && (tombstones[index >>> 6] & (1L << index)) != 0;
+    }
+
+    void pin() {
+        pins++;
+    }
+
+    void unpin() {
+        pins--;
+    }
+
+    Event get(int index) {
+        return events[index];
+    }
+
+    long timestamp(int index) {
+        return events[index].timestamp();
+    }
+
+    /**
+     * @return the index of the first event with timestamp greater or equal to {@code timestamp}.
+     */
+    int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (events[mid].timestamp() < timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first event with timestamp greater than {@code timestamp}.
+     */
+    int upperBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (events[mid].timestamp() <= timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of this very instance of event or -1 if not found.
+     */
+    int indexOf(Event event) {
+        long timestamp = event.timestamp();
+        for (int i = lowerBound(timestamp); i < size && events[i].timestamp() == timestamp; i++) {
+            if (events[i] == event && !isDeleted(i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts the event after any other event with the same timestamp.
+     *
+     * @return the segment holding the result, {@code this} unless the segment is sealed or pinned.
+     */
+    Segment insert(Event event) {
+        if (deleted > 0) {
+            return compact().insert(event);
+        }
+        int index = upperBound(event.timestamp());
+        if (sealed || pins > 0) {
+            Event[] copy = new Event[sealed ? size + 1 : Math.max(events.length, size + 1)];
+            System.arraycopy(events, 0, copy, 0, index);
+            copy[index] = event;
+            System.arraycopy(events, index, copy, index + 1, size - index);
+            return new Segment(copy, size + 1, sealed);
+        }
+
+        if (size == events.length) {
+            events = Arrays.copyOf(events, Math.max(8, size * 2));
+        }
+        System.arraycopy(events, index, events, index + 1, size - index);
+        events[index] = event;
+        size++;
+        return this;
+    }
+
+    /**
+     * @return the segment holding the result, {@code this} unless the segment is sealed or pinned.
+     */
+    Segment remove(int index) {
+        if (sealed) {
+            long[] tombstones = this.tombstones == null ? new long[(size + 63) >>> 6] : this.tombstones.clone();
+            tombstones[index >>> 6] |= 1L << index;
+            return new Segment(events, size, true, tombstones, deleted + 1);
+        }
+
+        if (pins > 0) {
+            Event[] copy = new Event[events.length];
+            System.arraycopy(events, 0, copy, 0, index);
+            System.arraycopy(events, index + 1, copy, index, size - index - 1);
+            return new Segment(copy, size - 1, false);
+        }
+
+        System.arraycopy(events, index + 1, events, index, size - index - 1);
+        events[--size] = null;
+        return this;
+    }
+
+    /**
+     * Finds a position to split this segment in two, close to its middle. Events with the same
+     * timestamp are never split apart.
+     *
+     * @return the split position or -1 if all events share the same timestamp.
+     */
+    int splitPoint() {
+        int middle = size / 2;
+        int after = upperBound(timestamp(middle));
+        if (after < size) {
+            return after;
+        }
+        int before = lowerBound(timestamp(middle));
+        return before > 0 ? before : -1;
+    }
+
+    /**
+     * @return a sealed segment holding the events in {@code [from, to)} not marked as deleted.
+     */
+    Segment seal(int from, int to) {
+        if (deleted == 0) {
+            return new Segment(Arrays.copyOfRange(events, from, to), to - from, true);
+        }
+        Event[] copy = new Event[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (!isDeleted(i)) {
+                copy[count++] = events[i];
+            }
+        }
+        return new Segment(count < copy.length ? Arrays.copyOf(copy, count) : copy, count, true);
+    }
+
+    /**
+     * @return a sealed segment without the events marked as deleted.
+     */
+    Segment compact() {
+        return seal(0, size);
+    }
+
+    /**
+     * @return a head segment holding the events in {@code [from, to)}.
+     */
+    Segment head(int from, int to, int initialCapacity) {
+        Event[] copy = new Event[Math.max(initialCapacity, to - from)];
+        System.arraycopy(events, from, copy, 0, to - from);
+        return new Segment(copy, to - from, false);
+    }
+}
@@ -0,0 +1,364 @@
+package net.intelie.challenges;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Events of a single type, partitioned in time ordered segments.
+ * <p>
+ * Each segment is keyed by the lower bound of the time range it covers, so the segment owning
+ * a timestamp is found with a {@link TreeMap#floorEntry} and a range query only visits the
+ * segments overlapping it. Events with the same timestamp always live in the same segment.
+ * <p>
+ * Removals from sealed segments only mark tombstones. Once the fraction of tombstones of a segment
+ * reaches the compaction threshold, a background thread, shared by all instances, rewrites it
+ * without them.
+ * <p>
+ * Not thread-safe, callers synchronize on the instance itself.
+ */
+final class SegmentedEvents {
+    private static final int HEAD_INITIAL_CAPACITY = 16;
+
+    private static final Executor COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "segment-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int segmentCapacity;
+    private final double compactionThreshold;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    private long version;
+    private boolean dropped;
+
+    /*
+     * The sealed segments sorted by time, shared by the snapshots taken until one of them changes, null if stale.
+     * Changes to the head leave it as is.
+     */
+    private Segment[] sealed;
+
+    /*
+     * Keys of the segments waiting for compaction, each once, in the order they reached the threshold, and whether
+     * the compactor was already asked to handle them.
+     */
+    private final Set<Long> compactions = new LinkedHashSet<>();
+    private boolean compacting;
+
+    SegmentedEvents(int segmentCapacity, double compactionThreshold) {
+        this.segmentCapacity = segmentCapacity;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Incremented on every modification, so iterators can tell if their cached position is still valid.
+     */
+    long version() {
+        return version;
+    }
+
+    boolean isDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return false if these events were dropped by a {@link EventStore#removeAll}.
+     */
+    boolean insert(Event event) {
+        if (dropped) {
+            return false;
+        }
+
+        if (segments.isEmpty()) {
+            segments.put(Long.MIN_VALUE, new Segment(HEAD_INITIAL_CAPACITY));
+        }
+
+        Map.Entry<Long, Segment> entry = segmentFor(event.timestamp());
+        Long key = entry.getKey();
+        Segment segment = entry.getValue().insert(event);
+        if (segment != entry.getValue()) {
+            segments.put(key, segment);
+        }
+        if (segment.isSealed()) {
+            sealed = null;
+        }
+
+        if (segment.size() > segmentCapacity) {
+            if (segment.isSealed()) {
+                splitSealed(key, segment);
+            }
+            else {
+                sealHead(key, segment);
+            }
+        }
+
+        modified();
+        return true;
+    }
+
+    /**
+     * Removes this very instance of event, if still present.
+     *
+     * @return true if the event was removed.
+     */
+    boolean remove(Event event) {
+        if (dropped || segments.isEmpty()) {
+            return false;
+        }
+
+        Map.Entry<Long, Segment> entry = segmentFor(event.timestamp());
+        Segment segment = entry.getValue();
+        int index = segment.indexOf(event);
+        if (index < 0) {
+            return false;
+        }
+
+        Segment result = segment.remove(index);
+        if (result.isSealed()) {
+            sealed = null;
+        }
+        if (result.size() == result.deleted() && result.isSealed()) {
+            segments.remove(entry.getKey());
+        }
+        else if (result != segment) {
+            segments.put(entry.getKey(), result);
+            if (result.deleted() > 0 && result.deleted() >= result.size() * compactionThreshold) {
+                scheduleCompaction(entry.getKey());
+            }
+        }
+
+        modified();
+        return true;
+    }
+
+    void drop() {
+        dropped = true;
+        segments.clear();
+        compactions.clear();
+        sealed = null;
+        modified();
+    }
+
+    /**
+     * Schedules the compaction of a segment, unless it is already pending.
+     */
+    private void scheduleCompaction(Long key) {
+        if (!compactions.add(key)) {
+            return;
+        }
+        if (!compacting) {
+            compacting = true;
+            COMPACTOR.execute(this::compact);
+        }
+    }
+
+    /**
+     * Compacts the segments waiting, one at a time, so writers and readers only wait for a single segment.
+     */
+    private void compact() {
+        while (true) {
+            synchronized (this) {
+                Iterator<Long> pending = compactions.iterator();
+                if (!pending.hasNext()) {
+                    compacting = false;
+                    return;
+                }
+                Long key = pending.next();
+                pending.remove();
+                compact(key);
+            }
+        }
+    }
+
+    private void compact(Long key) {
+        Segment segment = segments.get(key);
+        /*
+         * A segment copied meanwhile, by an insert or a split, was already compacted.
+         */
+        if (segment == null || segment.deleted() == 0) {
+            return;
+        }
+        Segment compacted = segment.compact();
+        if (compacted.size() == 0) {
+            segments.remove(key);
+        }
+        else {
+            segments.put(key, compacted);
+        }
+        sealed = null;
+        modified();
+    }
+
+    /**
+     * @return how many segments are waiting for compaction.
+     */
+    int pendingCompactions() {
+        return compactions.size();
+    }
+
+    private void modified() {
+        version++;
+    }
+
+    /**
+     * The sealed segments as they are now, sorted by time. They never change, so the array is only rebuilt after
+     * a segment is sealed, compacted, evicted or replaced by a change to a sealed one.
+     */
+    Segment[] sealedSegments() {
+        if (sealed == null) {
+            int count = segments.size();
+            Map.Entry<Long, Segment> last = segments.lastEntry();
+            if (last != null && !last.getValue().isSealed()) {
+                count--;
+            }
+            sealed = new Segment[count];
+            int i = 0;
+            for (Segment segment : segments.values()) {
+                if (i == count) {
+                    break;
+                }
+                sealed[i++] = segment;
+            }
+        }
+        return sealed;
+    }
+
+    /**
+     * Pins the head, the segment after the sealed ones, so it is copied instead of changed in place until
+     * {@link #release} is called.
+     *
+     * @return the head, null if there is none.
+     */
+    Segment pinHead() {
+        Map.Entry<Long, Segment> last = segments.lastEntry();
+        if (last == null || last.getValue().isSealed()) {
+            return null;
+        }
+        last.getValue().pin();
+        return last.getValue();
+    }
+
+    void release(Segment head) {
+        if (head != null) {
+            head.unpin();
+        }
+    }
+
+    /**
+     * Evicts, from the oldest, the segments holding only events with timestamp before {@code cutoff}.
+     */
+    void evictBefore(long cutoff, RetentionMetrics metrics) {
+        while (true) {
+            Map.Entry<Long, Segment> first = segments.firstEntry();
+            if (first == null) {
+                return;
+            }
+            Segment segment = first.getValue();
+            if (segment.size() == 0 || segment.timestamp(segment.size() - 1) >= cutoff) {
+                return;
+            }
+            evict(first.getKey(), segment, metrics);
+        }
+    }
+
+    /**
+     * Evicts the oldest segment, which may be the head.
+     *
+     * @return the segment evicted, null if there are no events.
+     */
+    Segment evictFirst(RetentionMetrics metrics) {
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        if (first == null || first.getValue().size() == 0) {
+            return null;
+        }
+        evict(first.getKey(), first.getValue(), metrics);
+        return first.getValue();
+    }
+
+    private void evict(Long key, Segment segment, RetentionMetrics metrics) {
+        segments.remove(key);
+        if (segment.isSealed()) {
+            sealed = null;
+        }
+        metrics.evicted(segment);
+        modified();
+    }
+
+    /**
+     * @return the lowest timestamp stored, {@link Long#MAX_VALUE} if there are no events.
+     */
+    long firstTimestamp() {
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        if (first == null || first.getValue().size() == 0) {
+            return Long.MAX_VALUE;
+        }
+        return first.getValue().timestamp(0);
+    }
+
+    long events() {
+        long events = 0;
+        for (Segment segment : segments.values()) {
+            events += segment.size() - segment.deleted();
+        }
+        return events;
+    }
+
+    long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments.values()) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the entry of the segment where an event with this timestamp is or would be stored,
+     * null if there are no segments.
+     */
+    Map.Entry<Long, Segment> segmentFor(long timestamp) {
+        Map.Entry<Long, Segment> entry = segments.floorEntry(timestamp);
+        return entry != null ? entry : segments.firstEntry();
+    }
+
+    Map.Entry<Long, Segment> nextSegment(Long key) {
+        return segments.higherEntry(key);
+    }
+
+    /**
+     * Seals the head, keeping in a new head only the events with its greatest timestamp.
+     */
+    private void sealHead(Long key, Segment head) {
+        long last = head.timestamp(head.size() - 1);
+        int split = head.lowerBound(last);
+        if (split == 0) {
+            return;
+        }
+        replace(key, head.seal(0, split), last, head.head(split, head.size(), HEAD_INITIAL_CAPACITY));
+    }
+
+    private void splitSealed(Long key, Segment segment) {
+        int split = segment.splitPoint();
+        if (split < 0) {
+            return;
+        }
+        replace(key, segment.seal(0, split), segment.timestamp(split), segment.seal(split, segment.size()));
+    }
+
+    private void replace(Long key, Segment first, long secondKey, Segment second) {
+        if (secondKey <= key) {
+            /*
+             * Only the first segment may hold timestamps lower than its key, so it can take the lowest key.
+             */
+            segments.remove(key);
+            key = Long.MIN_VALUE;
+        }
+        segments.put(key, first);
+        segments.put(secondKey, second);
+        sealed = null;
+    }
+}
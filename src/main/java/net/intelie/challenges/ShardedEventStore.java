@@ -0,0 +1,209 @@
+package net.intelie.challenges;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * EventStore partitioned over independent shards, so writers of different shards share nothing.
+ * <p>
+ * Events go to a shard by the hash of their type ({@link Partitioning#TYPE_HASH}), so each type lives in a single
+ * shard and every operation goes to that shard only; or by their timestamp ({@link Partitioning#TIME_RANGE}),
+ * ranges of {@code rangeWidth} being given to the shards in turns, so even a single type spreads over all of them.
+ * Queries of a time partitioned store go to the shards owning the ranges in their window, their iterators merged
+ * in timestamp order by an {@link EventIteratorMerging}.
+ * <p>
+ * Time partitioning does not spread live ingest: writers near the newest timestamp all land in the shard owning
+ * its range, so it only spreads late or historical inserts. Type partitioning over stores already locking each type
+ * on its own, as {@link EventStoreSynch}, gains little.
+ * <p>
+ * As thread-safe as its shards.
+ */
+public class ShardedEventStore implements EventStore, Closeable {
+
+    public enum Partitioning {
+        TYPE_HASH,
+        TIME_RANGE
+    }
+
+    private final EventStore[] shards;
+    private final Partitioning partitioning;
+    private final long rangeWidth;
+
+    /**
+     * Partitioned by {@link Partitioning#TYPE_HASH}.
+     *
+     * @param factory creates each shard.
+     */
+    public ShardedEventStore(int shardCount, Supplier<? extends EventStore> factory) {
+        this(shardCount, factory, Partitioning.TYPE_HASH, 1);
+    }
+
+    /**
+     * @param rangeWidth timestamps in each range of a {@link Partitioning#TIME_RANGE} store, ignored by
+     *                   {@link Partitioning#TYPE_HASH}.
+     */
+    public ShardedEventStore(int shardCount, Supplier<? extends EventStore> factory, Partitioning partitioning,
+                             long rangeWidth) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shard count must be positive");
+        }
+        if (rangeWidth <= 0) {
+            throw new IllegalArgumentException("range width must be positive");
+        }
+        this.shards = new EventStore[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = factory.get();
+        }
+        this.partitioning = partitioning;
+        this.rangeWidth = rangeWidth;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    public Partitioning partitioning() {
+        return partitioning;
+    }
+
+    private int shardOf(Event event) {
+        return partitioning == Partitioning.TYPE_HASH
+                ? shardOf(event.type())
+                : (int) Math.floorMod(Math.floorDiv(event.timestamp(), rangeWidth), (long) shards.length);
+    }
+
+    private int shardOf(String type) {
+        return Math.floorMod(type.hashCode(), shards.length);
+    }
+
+    /**
+     * @return the shards that may hold events of the type in the window.
+     */
+    private List<EventStore> shardsOf(String type, long startTime, long endTime) {
+        List<EventStore> owners = new ArrayList<>();
+        if (partitioning == Partitioning.TYPE_HASH) {
+            owners.add(shards[shardOf(type)]);
+            return owners;
+        }
+
+        long firstRange = Math.floorDiv(startTime, rangeWidth);
+        long lastRange = Math.floorDiv(endTime - 1, rangeWidth);
+        /* the difference may overflow a signed long, not an unsigned one */
+        if (Long.compareUnsigned(lastRange - firstRange, shards.length - 1) >= 0) {
+            for (EventStore shard : shards) {
+                owners.add(shard);
+            }
+        }
+        else {
+            for (long range = firstRange; range <= lastRange; range++) {
+                owners.add(shards[(int) Math.floorMod(range, (long) shards.length)]);
+            }
+        }
+        return owners;
+    }
+
+    @Override
+    public void insert(Event event) {
+        shards[shardOf(event)].insert(event);
+    }
+
+    /**
+     * The batch is split by shard, and each shard gets its part at once.
+     */
+    @Override
+    public void insertAll(Collection<Event> events) {
+        List<List<Event>> parts = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            parts.add(new ArrayList<>());
+        }
+        for (Event event : events) {
+            parts.get(shardOf(event)).add(event);
+        }
+        for (int i = 0; i < shards.length; i++) {
+            if (!parts.get(i).isEmpty()) {
+                shards[i].insertAll(parts.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void removeAll(String type) {
+        if (partitioning == Partitioning.TYPE_HASH) {
+            shards[shardOf(type)].removeAll(type);
+        }
+        else {
+            for (EventStore shard : shards) {
+                shard.removeAll(type);
+            }
+        }
+    }
+
+    @Override
+    public EventIterator query(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        List<EventStore> owners = shardsOf(type, startTime, endTime);
+        if (owners.size() == 1) {
+            return owners.get(0).query(type, startTime, endTime);
+        }
+        List<EventIterator> iterators = new ArrayList<>(owners.size());
+        for (EventStore shard : owners) {
+            iterators.add(shard.query(type, startTime, endTime));
+        }
+        return new EventIteratorMerging(iterators);
+    }
+
+    @Override
+    public long count(String type, long startTime, long endTime) {
+        if (endTime <= startTime) {
+            throw new IllegalArgumentException();
+        }
+        long count = 0;
+        for (EventStore shard : shardsOf(type, startTime, endTime)) {
+            count += shard.count(type, startTime, endTime);
+        }
+        return count;
+    }
+
+    @Override
+    public long[] histogram(String type, long startTime, long endTime, long bucketWidth) {
+        long[] histogram = Histograms.create(startTime, endTime, bucketWidth);
+        for (EventStore shard : shardsOf(type, startTime, endTime)) {
+            long[] part = shard.histogram(type, startTime, endTime, bucketWidth);
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += part[i];
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Closes the shards that are {@link Closeable}.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (EventStore shard : shards) {
+            if (shard instanceof Closeable) {
+                try {
+                    ((Closeable) shard).close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
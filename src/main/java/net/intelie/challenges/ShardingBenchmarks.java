@@ -0,0 +1,75 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write scaling of the {@link ShardedEventStore}: inserts spread over 64 types, or into a single one, for each
+ * number of shards. Run it with as many threads as cores, for example {@code ShardingBenchmarks -t 8}, and
+ * again with fewer threads to see how it scales.
+ * <p>
+ * Live inserts all carry timestamps near the newest one, so a time partitioned store sends them to the same shard
+ * and only spreads them with {@code backfill}, inserts with timestamps anywhere in the past. Shards by type over
+ * {@link EventStoreSynch}, which already locks each type on its own, are expected to gain nothing. Reads mixed with
+ * writes are measured by {@link Benchmarks}, with the {@code SHARDED_TYPE} and {@code SHARDED_TIME} implementations.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ShardingBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Sharded {
+        @Param({"1", "4", "16"})
+        public int shards;
+
+        @Param
+        public ShardedEventStore.Partitioning partitioning;
+
+        @Param({"1", "64"})
+        public int types;
+
+        @Param({"false", "true"})
+        public boolean backfill;
+
+        ShardedEventStore store;
+
+        /**
+         * A fresh store every iteration, so the stores do not grow for the whole trial.
+         */
+        @Setup(Level.Iteration)
+        public void create() {
+            store = new ShardedEventStore(shards, EventStoreSynch::new, partitioning, 16);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private Random random;
+        private long sequence;
+        private int threads;
+
+        @Setup(Level.Trial)
+        public void init(ThreadParams threadParams) {
+            random = new Random(threadParams.getThreadIndex());
+            sequence = threadParams.getThreadIndex();
+            threads = threadParams.getThreadCount();
+        }
+
+        Event next(Sharded sharded) {
+            sequence += threads;
+            long timestamp = sharded.backfill ? (random.nextLong() >>> 1) % sequence : sequence;
+            return new Event(Benchmarks.type((int) (sequence % sharded.types)), timestamp);
+        }
+    }
+
+    @Benchmark
+    public void insert(Sharded sharded, Writer writer) {
+        sharded.store.insert(writer.next(sharded));
+    }
+}
@@ -0,0 +1,87 @@
+package net.intelie.challenges;
+
+import java.util.*;
+
+/**
+ * Helpers for lists of events sorted by timestamp.
+ */
+public final class SortedEvents {
+
+    private SortedEvents() {
+    }
+
+    /**
+     * @return the index of the first event with timestamp greater or equal to {@code timestamp}.
+     */
+    public static int lowerBound(List<Event> events, long timestamp) {
+        int low = 0;
+        int high = events.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (events.get(mid).timestamp() < timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first event with timestamp greater than {@code timestamp}, where an event with that
+     * timestamp goes after the ones already there.
+     */
+    public static int upperBound(List<Event> events, long timestamp) {
+        int low = 0;
+        int high = events.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (events.get(mid).timestamp() <= timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Splits a batch of events by type, each group sorted by timestamp.
+     */
+    public static Map<String, List<Event>> groupByType(Collection<Event> events) {
+        Map<String, List<Event>> groups = new HashMap<>();
+        for (Event event : events) {
+            List<Event> group = groups.get(event.type());
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(event.type(), group);
+            }
+            group.add(event);
+        }
+        for (List<Event> group : groups.values()) {
+            group.sort(Comparator.comparingLong(Event::timestamp));
+        }
+        return groups;
+    }
+
+    /**
+     * Merges sorted events into a sorted list in a single pass, from its end, so each event of the list is moved
+     * at most once. Events of the batch go after the events of the list with the same timestamp.
+     */
+    public static void merge(List<Event> events, List<Event> sorted) {
+        int i = events.size() - 1;
+        int j = sorted.size() - 1;
+        events.addAll(sorted);
+        int k = events.size() - 1;
+        while (j >= 0) {
+            if (i >= 0 && events.get(i).timestamp() > sorted.get(j).timestamp()) {
+                events.set(k--, events.get(i--));
+            }
+            else {
+                events.set(k--, sorted.get(j--));
+            }
+        }
+    }
+}
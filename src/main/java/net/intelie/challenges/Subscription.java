@@ -0,0 +1,126 @@
+package net.intelie.challenges;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Live feed of the events of a type in a time range.
+ * <p>
+ * The events already stored when subscribing, the backlog, are delivered first, sorted by timestamp. Then every
+ * matching event inserted is delivered as it arrives, including late events with timestamps before the ones
+ * already delivered.
+ * <p>
+ * Writers hand the events over through a bounded ring buffer, emptied by the thread of the subscription. When
+ * the listener falls behind and the buffer fills up, the writers of the type wait for room (backpressure).
+ * A listener that throws closes the subscription, and what it threw is kept as its {@link #failure}.
+ */
+public class Subscription implements AutoCloseable {
+    private static final long OFFER_TIMEOUT_MILLIS = 10;
+
+    private final EventType type;
+    private final long startTime;
+    private final long endTime;
+    private final EventListener listener;
+    private final BlockingQueue<Event> buffer;
+    private final Consumer<Subscription> unsubscribe;
+    private final Thread thread;
+
+    private Event[] backlog;
+    private volatile boolean closed = false;
+    private volatile Throwable failure;
+
+    Subscription(EventType type, long startTime, long endTime, EventListener listener, int capacity,
+                 Consumer<Subscription> unsubscribe) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.type = type;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.listener = listener;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.unsubscribe = unsubscribe;
+        this.thread = new Thread(this::deliver, "event-subscription");
+        this.thread.setDaemon(true);
+    }
+
+    EventType type() {
+        return type;
+    }
+
+    boolean matches(Event event) {
+        return event.timestamp() >= startTime && event.timestamp() < endTime;
+    }
+
+    void start(Event[] backlog) {
+        this.backlog = backlog;
+        thread.start();
+    }
+
+    /**
+     * Waits for room in the buffer, unless the subscription is closed meanwhile.
+     */
+    void push(Event event) {
+        try {
+            while (!closed && !buffer.offer(event, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                /* the listener is behind, keep waiting */
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver() {
+        try {
+            for (Event event : backlog) {
+                if (closed) {
+                    return;
+                }
+                listener.onEvent(event);
+            }
+            backlog = null;
+
+            while (!closed) {
+                listener.onEvent(buffer.take());
+            }
+        } catch (InterruptedException e) {
+            /* closed */
+        } catch (Throwable e) {
+            failure = e;
+        }
+        finally {
+            close();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return what the listener threw, closing the subscription, null if it did not.
+     */
+    public Throwable failure() {
+        return failure;
+    }
+
+    /**
+     * Stops the deliveries. Events already in the buffer are discarded.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        unsubscribe.accept(this);
+        buffer.clear();
+        if (Thread.currentThread() != thread) {
+            thread.interrupt();
+        }
+    }
+}
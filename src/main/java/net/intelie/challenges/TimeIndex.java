@@ -0,0 +1,92 @@
+package net.intelie.challenges;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Which types have events in each time bucket, over all the types of an {@link EventStoreSynch}, so a scan of a
+ * time window across types looks only at the types with events in it.
+ * <p>
+ * The {@link RollupCounters} of a type, which already count its events per bucket, add the type to a bucket when
+ * its count there becomes positive and remove it when the count goes back to zero. Several counters of the same
+ * type may hold a bucket at once, while a {@link EventStore#removeAll} replaces them, so each type is counted.
+ * <p>
+ * Thread-safe, each bucket has its own lock. Emptied buckets are removed.
+ */
+final class TimeIndex {
+    private final long width;
+    private final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+
+    TimeIndex(long width) {
+        this.width = width;
+    }
+
+    void add(long bucket, int type) {
+        update(bucket, type, 1);
+    }
+
+    void remove(long bucket, int type) {
+        update(bucket, type, -1);
+    }
+
+    private void update(long key, int type, int delta) {
+        while (true) {
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+            }
+            synchronized (bucket) {
+                /*
+                 * Emptied and removed by a concurrent update, try again with a new one.
+                 */
+                if (bucket.retired) {
+                    continue;
+                }
+                int[] count = bucket.types.computeIfAbsent(type, t -> new int[1]);
+                count[0] += delta;
+                if (count[0] <= 0) {
+                    bucket.types.remove(type);
+                    if (bucket.types.isEmpty()) {
+                        bucket.retired = true;
+                        buckets.remove(key, bucket);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the ids of the types with events in {@code [startTime, endTime)}, or in the buckets around its
+     * limits. Buckets changed meanwhile may or may not be reflected.
+     */
+    BitSet types(long startTime, long endTime) {
+        BitSet types = new BitSet();
+        ConcurrentNavigableMap<Long, Bucket> range =
+                buckets.subMap(Math.floorDiv(startTime, width), true, Math.floorDiv(endTime - 1, width), true);
+        for (Bucket bucket : range.values()) {
+            synchronized (bucket) {
+                for (Integer type : bucket.types.keySet()) {
+                    types.set(type);
+                }
+            }
+        }
+        return types;
+    }
+
+    /**
+     * How many buckets have events, for tests.
+     */
+    int size() {
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+        /* the counters holding each type in the bucket */
+        final Map<Integer, int[]> types = new HashMap<>();
+        boolean retired;
+    }
+}
@@ -0,0 +1,89 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costs and gains of the time index of {@link EventStoreSynch}: inserts keeping it up to date, and scans of a
+ * time window over all types, with and without it.
+ * <p>
+ * Each type has events only in a slice of the populated range, as sensors that come and go, so a window holds a
+ * few of the types.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TimeIndexBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Populated {
+        @Param({"false", "true"})
+        public boolean timeIndexed;
+
+        @Param({"100000"})
+        public int events;
+
+        @Param({"16", "1024"})
+        public int types;
+
+        @Param({"1000"})
+        public int window;
+
+        EventStoreSynch store;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            store = new EventStoreSynch(100, timeIndexed);
+            for (int i = 0; i < events; i++) {
+                store.insert(new Event(type(i), i));
+            }
+        }
+
+        /**
+         * Types take turns in slices of the range, each slice shared by 4 of them.
+         */
+        String type(long timestamp) {
+            long slice = timestamp * types / 4 / events;
+            return Benchmarks.type((int) ((slice * 4 + timestamp % 4) % types));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private Random random;
+        private long sequence;
+        private int threads;
+
+        @Setup(Level.Trial)
+        public void init(Populated populated, ThreadParams threadParams) {
+            random = new Random(threadParams.getThreadIndex());
+            threads = threadParams.getThreadCount();
+            sequence = populated.events + threadParams.getThreadIndex();
+        }
+    }
+
+    /**
+     * Each insert lands in a new rollup bucket every 100 timestamps, updating the index.
+     */
+    @Benchmark
+    public void insert(Populated populated, Cursor cursor) {
+        cursor.sequence += cursor.threads;
+        long timestamp = cursor.sequence % populated.events;
+        populated.store.insert(new Event(populated.type(timestamp), cursor.sequence));
+    }
+
+    @Benchmark
+    public void queryAllTypes(Populated populated, Cursor cursor, Blackhole blackhole) {
+        long start = cursor.random.nextInt(populated.events - populated.window);
+        EventIterator eventIterator = populated.store.queryAllTypes(start, start + populated.window);
+        while (eventIterator.moveNext()) {
+            blackhole.consume(eventIterator.current());
+        }
+    }
+}
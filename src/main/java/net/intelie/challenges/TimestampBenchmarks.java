@@ -0,0 +1,91 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costs of the compressed timestamp blocks of {@link EventStoreColumnar}: throughput of encoding and decoding a
+ * block, and of scanning the store compared to scanning a plain array. The bytes per timestamp are printed at
+ * the end of the trial.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimestampBenchmarks {
+    private static final int EVENTS = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Timestamps {
+        /**
+         * The largest gap between consecutive timestamps.
+         */
+        @Param({"10", "1000", "100000"})
+        public int maxGap;
+
+        long[] timestamps;
+        TimestampBlock block;
+        ColumnarEvents events;
+        EventStoreColumnar store;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            Random random = new Random(42);
+            timestamps = new long[EVENTS];
+            events = new ColumnarEvents("type 1");
+            store = new EventStoreColumnar();
+            long timestamp = System.currentTimeMillis();
+            for (int i = 0; i < EVENTS; i++) {
+                timestamp += random.nextInt(maxGap + 1);
+                timestamps[i] = timestamp;
+                events.insert(timestamp, Payload.EMPTY);
+                store.insert(new Event("type 1", timestamp));
+            }
+            block = TimestampBlock.encode(timestamps, 0, ColumnarEvents.BLOCK_SIZE);
+        }
+
+        @TearDown(Level.Trial)
+        public void report() {
+            System.out.printf("%nbytes per timestamp: %.2f%n", (double) events.timestampBytes() / EVENTS);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buffer {
+        final long[] decoded = new long[ColumnarEvents.BLOCK_SIZE];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ColumnarEvents.BLOCK_SIZE)
+    public TimestampBlock encode(Timestamps timestamps) {
+        return TimestampBlock.encode(timestamps.timestamps, 0, ColumnarEvents.BLOCK_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ColumnarEvents.BLOCK_SIZE)
+    public long[] decode(Timestamps timestamps, Buffer buffer) {
+        timestamps.block.decode(buffer.decoded);
+        return buffer.decoded;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long scanArray(Timestamps timestamps) {
+        long sum = 0;
+        for (long timestamp : timestamps.timestamps) {
+            sum += timestamp;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void scanStore(Timestamps timestamps, Blackhole blackhole) {
+        EventIterator eventIterator = timestamps.store.query("type 1", Long.MIN_VALUE, Long.MAX_VALUE);
+        while (eventIterator.moveNext()) {
+            blackhole.consume(eventIterator.current().timestamp());
+        }
+    }
+}
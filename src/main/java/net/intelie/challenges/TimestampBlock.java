@@ -0,0 +1,120 @@
+package net.intelie.challenges;
+
+import java.util.Arrays;
+
+/**
+ * Sorted timestamps compressed as the first one followed by the gaps between consecutive ones, each gap as a
+ * varint. Gaps are never negative and usually small, so most take a single byte instead of eight.
+ * <p>
+ * The smallest and the largest timestamps are kept apart, so searches skip the blocks out of their range
+ * without decoding them. Immutable, changing the timestamps produces a new block.
+ */
+final class TimestampBlock {
+    /*
+     * Memory estimate for a 64 bit JVM with compressed references: the block and the header of its array.
+     */
+    private static final int BLOCK_BYTES = 48;
+
+    private final long min;
+    private final long max;
+    private final int size;
+    private final byte[] data;
+
+    private TimestampBlock(long min, long max, int size, byte[] data) {
+        this.min = min;
+        this.max = max;
+        this.size = size;
+        this.data = data;
+    }
+
+    /**
+     * @param timestamps sorted, at least one.
+     */
+    static TimestampBlock encode(long[] timestamps, int from, int size) {
+        byte[] data = new byte[size + 8];
+        int length = 0;
+        long previous = timestamps[from];
+        for (int i = 1; i < size; i++) {
+            long gap = timestamps[from + i] - previous;
+            previous = timestamps[from + i];
+            if (data.length - length < 10) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((gap & ~0x7FL) != 0) {
+                data[length++] = (byte) ((gap & 0x7F) | 0x80);
+                gap >>>= 7;
+            }
+            data[length++] = (byte) gap;
+        }
+        return new TimestampBlock(timestamps[from], previous, size, Arrays.copyOf(data, length));
+    }
+
+    long min() {
+        return min;
+    }
+
+    long max() {
+        return max;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the memory used by the block, as estimated for a 64 bit JVM.
+     */
+    long bytes() {
+        return BLOCK_BYTES + data.length;
+    }
+
+    /**
+     * Writes the timestamps to {@code into}, from its start.
+     */
+    void decode(long[] into) {
+        long timestamp = min;
+        into[0] = timestamp;
+        int position = 0;
+        for (int i = 1; i < size; i++) {
+            long gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                gap |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            timestamp += gap;
+            into[i] = timestamp;
+        }
+    }
+
+    /**
+     * @return the index of the first timestamp greater or equal to {@code timestamp}.
+     */
+    int lowerBound(long timestamp) {
+        if (timestamp <= min) {
+            return 0;
+        }
+        if (timestamp > max) {
+            return size;
+        }
+        long current = min;
+        int position = 0;
+        for (int i = 1; i < size; i++) {
+            long gap = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                gap |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            current += gap;
+            if (current >= timestamp) {
+                return i;
+            }
+        }
+        return size;
+    }
+}
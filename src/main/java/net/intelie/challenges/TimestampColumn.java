@@ -0,0 +1,44 @@
+package net.intelie.challenges;
+
+/**
+ * The sorted timestamps of the events of a type and the offsets of their payloads, as read by a
+ * {@link TimestampCursor}, for stores that keep no {@link Event} instances.
+ * <p>
+ * Callers hold the lock guarding the events.
+ */
+interface TimestampColumn {
+
+    int size();
+
+    long timestamp(int index);
+
+    /**
+     * @return the index of the first event with timestamp greater or equal to {@code timestamp}.
+     */
+    int lowerBound(long timestamp);
+
+    /**
+     * Incremented on every modification, so cursors can tell if their position is still valid.
+     */
+    long version();
+
+    void remove(int index);
+
+    /**
+     * @return the offset of the payload of the event in {@link #payloadBytes()}, {@link PayloadCodec#NO_PAYLOAD} if
+     * it has none. Events with a payload have distinct offsets while {@link #payloadVersion()} is the same.
+     */
+    int payload(int index);
+
+    /**
+     * Incremented whenever the payloads are moved, changing their offsets.
+     */
+    long payloadVersion();
+
+    /**
+     * Never changed once returned, so payloads may be decoded from it outside the lock.
+     */
+    byte[] payloadBytes();
+
+    String[] payloadStrings();
+}
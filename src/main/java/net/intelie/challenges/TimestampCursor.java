@@ -0,0 +1,176 @@
+package net.intelie.challenges;
+
+/**
+ * Position of an iterator over a {@link TimestampColumn}, shared by the iterators of the stores keeping no
+ * {@link Event} instances.
+ * <p>
+ * The position is the index of the current event, valid while the version of the column is the same. Otherwise the
+ * current event is searched again among the ones with its timestamp, told apart by the offset of their payloads,
+ * so none of them is skipped or repeated. Events without payload are found by how many of them with the same
+ * timestamp were returned before, and after the payloads were moved by a compaction, events with a payload are
+ * found by comparing the payloads: only events equal in timestamp and payload can't be told apart, and the position
+ * among them may be off if one is removed by someone else. Nothing is allocated, unless the payloads were moved.
+ * <p>
+ * Callers hold the lock guarding the column.
+ */
+final class TimestampCursor {
+    private boolean positioned;
+    private boolean removed;
+    private int index;
+    private long version;
+
+    private long timestamp;
+    private int payload;
+    private long payloadVersion;
+    private byte[] payloadBytes;
+    private String[] payloadStrings;
+
+    /*
+     * How many events with the timestamp of the current one were returned before it and not removed through this
+     * cursor, and how many of them had no payload.
+     */
+    private int returnedBefore;
+    private int emptyBefore;
+
+    long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the offset of the payload of the current event in {@link #payloadBytes()}, or
+     * {@link PayloadCodec#NO_PAYLOAD}.
+     */
+    int payload() {
+        return payload;
+    }
+
+    /**
+     * As they were when the current event was found, never changed, so it may be decoded without the lock.
+     */
+    byte[] payloadBytes() {
+        return payloadBytes;
+    }
+
+    String[] payloadStrings() {
+        return payloadStrings;
+    }
+
+    boolean isRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return where the event after the current one is, or would be, or the first event at or after
+     * {@code startTime} if there is no current event yet.
+     */
+    int nextPosition(TimestampColumn column, long startTime) {
+        if (!positioned) {
+            return column.lowerBound(startTime);
+        }
+        if (version == column.version()) {
+            return removed ? index : index + 1;
+        }
+        int current = indexOfCurrent(column);
+        if (current >= 0) {
+            return current + 1;
+        }
+
+        /* removed, skip the ones with the same timestamp returned before it */
+        int first = column.lowerBound(timestamp);
+        int next = first;
+        while (next < column.size() && next - first < returnedBefore && column.timestamp(next) == timestamp) {
+            next++;
+        }
+        return next;
+    }
+
+    /**
+     * Makes the event at {@code position} the current one.
+     */
+    void moveTo(TimestampColumn column, int position) {
+        long next = column.timestamp(position);
+        if (positioned && next == timestamp) {
+            if (!removed) {
+                returnedBefore++;
+                emptyBefore += payload == PayloadCodec.NO_PAYLOAD ? 1 : 0;
+            }
+        }
+        else {
+            returnedBefore = 0;
+            emptyBefore = 0;
+        }
+        timestamp = next;
+        payload = column.payload(position);
+        payloadVersion = column.payloadVersion();
+        payloadBytes = payload != PayloadCodec.NO_PAYLOAD ? column.payloadBytes() : null;
+        payloadStrings = payload != PayloadCodec.NO_PAYLOAD ? column.payloadStrings() : null;
+        positioned = true;
+        removed = false;
+        index = position;
+        version = column.version();
+    }
+
+    /**
+     * Removes the current event, if it is still there.
+     *
+     * @return false if it is not.
+     */
+    boolean removeCurrent(TimestampColumn column) {
+        int i = indexOfCurrent(column);
+        if (i < 0) {
+            return false;
+        }
+        column.remove(i);
+        removed = true;
+        index = i;
+        version = column.version();
+        return true;
+    }
+
+    /**
+     * @return the index of the current event, -1 if it is no longer in the column.
+     */
+    private int indexOfCurrent(TimestampColumn column) {
+        if (removed) {
+            return -1;
+        }
+        if (version == column.version()) {
+            return index;
+        }
+
+        int first = column.lowerBound(timestamp);
+        int empty = 0;
+        /* after a compaction, the event with an equal payload closest to where the current one would be */
+        int estimate = first + returnedBefore;
+        int closest = -1;
+        Payload decoded = null;
+        for (int i = first; i < column.size() && column.timestamp(i) == timestamp; i++) {
+            int candidate = column.payload(i);
+            if (payload == PayloadCodec.NO_PAYLOAD) {
+                if (candidate == PayloadCodec.NO_PAYLOAD && empty++ == emptyBefore) {
+                    return i;
+                }
+            }
+            else if (payloadVersion == column.payloadVersion()) {
+                if (candidate == payload) {
+                    return i;
+                }
+            }
+            else if (candidate != PayloadCodec.NO_PAYLOAD) {
+                if (decoded == null) {
+                    decoded = PayloadCodec.decode(payloadBytes, payload, payloadStrings);
+                }
+                if (decoded.equals(PayloadCodec.decode(column.payloadBytes(), candidate, column.payloadStrings()))) {
+                    if (i > estimate && closest >= 0) {
+                        break;
+                    }
+                    closest = i;
+                    if (i >= estimate) {
+                        break;
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+}
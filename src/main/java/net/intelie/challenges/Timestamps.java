@@ -0,0 +1,46 @@
+package net.intelie.challenges;
+
+/**
+ * Binary searches over sorted timestamps, without boxing nor probe events.
+ */
+public final class Timestamps {
+
+    private Timestamps() {
+    }
+
+    /**
+     * @return the index of the first of the {@code size} first timestamps greater or equal to {@code timestamp}.
+     */
+    public static int lowerBound(long[] timestamps, int size, long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index of the first of the {@code size} first timestamps greater than {@code timestamp}.
+     */
+    public static int upperBound(long[] timestamps, int size, long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
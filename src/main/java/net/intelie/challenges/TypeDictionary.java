@@ -0,0 +1,68 @@
+package net.intelie.challenges;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process wide dictionary of event types, mapping each name to a single {@link EventType} with a dense id.
+ * <p>
+ * Stores may then index their data by id, in arrays, and callers that keep the {@link EventType} skip the
+ * lookup of the name altogether. Types are never forgotten, the dictionary is meant for a bounded set of names.
+ */
+public final class TypeDictionary {
+    static final int MAX_TYPES = 1 << 22;
+
+    private static final ConcurrentMap<String, EventType> TYPES = new ConcurrentHashMap<>();
+    private static final TypeTable<EventType> BY_ID = new TypeTable<>();
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private TypeDictionary() {
+    }
+
+    /**
+     * @return the type with this name, registering it if it was never seen.
+     */
+    public static EventType intern(String name) {
+        EventType type = TYPES.get(name);
+        if (type == null) {
+            type = TYPES.computeIfAbsent(name, TypeDictionary::register);
+        }
+        return type;
+    }
+
+    private static EventType register(String name) {
+        int id = NEXT_ID.getAndIncrement();
+        if (id >= MAX_TYPES) {
+            NEXT_ID.decrementAndGet();
+            throw new IllegalStateException("too many event types: " + MAX_TYPES);
+        }
+        EventType type = new EventType(name, id);
+        BY_ID.computeIfAbsent(id, i -> type);
+        return type;
+    }
+
+    /**
+     * @return the type with this name, or null if it was never seen.
+     */
+    public static EventType lookup(String name) {
+        return TYPES.get(name);
+    }
+
+    /**
+     * @return the type with this id, or null if there is none.
+     */
+    public static EventType byId(int id) {
+        if (id < 0 || id >= NEXT_ID.get()) {
+            return null;
+        }
+        return BY_ID.get(id);
+    }
+
+    /**
+     * @return how many types were registered, all ids are lower than it.
+     */
+    public static int size() {
+        return NEXT_ID.get();
+    }
+}
@@ -0,0 +1,44 @@
+package net.intelie.challenges;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Events of a single type of an {@link EventStoreSynch}, sorted by timestamp, their rollup counters and the
+ * subscriptions to the type. The instance is also the lock guarding them.
+ */
+final class TypeEvents {
+    private static final Subscription[] NO_SUBSCRIPTIONS = new Subscription[0];
+
+    final List<Event> events;
+    final RollupCounters rollups;
+
+    /*
+     * Copied on every change, so writers may deliver to the subscriptions after releasing the lock.
+     */
+    Subscription[] subscriptions;
+
+    TypeEvents(int initialCapacity, RollupCounters rollups) {
+        this(initialCapacity, rollups, NO_SUBSCRIPTIONS);
+    }
+
+    TypeEvents(int initialCapacity, RollupCounters rollups, Subscription[] subscriptions) {
+        this.events = new ArrayList<>(initialCapacity);
+        this.rollups = rollups;
+        this.subscriptions = subscriptions;
+    }
+
+    void subscribe(Subscription subscription) {
+        Subscription[] subscriptions = Arrays.copyOf(this.subscriptions, this.subscriptions.length + 1);
+        subscriptions[subscriptions.length - 1] = subscription;
+        this.subscriptions = subscriptions;
+    }
+
+    void unsubscribe(Subscription subscription) {
+        List<Subscription> subscriptions = new ArrayList<>(Arrays.asList(this.subscriptions));
+        if (subscriptions.remove(subscription)) {
+            this.subscriptions = subscriptions.toArray(NO_SUBSCRIPTIONS);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package net.intelie.challenges;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * A concurrent array indexed by type id, in pages created as needed. Pages never move, so values are changed
+ * with a compare-and-set on their slot, without locks.
+ */
+final class TypeTable<T> {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGES = (TypeDictionary.MAX_TYPES + PAGE_SIZE - 1) >>> PAGE_BITS;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> pages = new AtomicReferenceArray<>(PAGES);
+
+    /**
+     * @return the value of the id, null if there is none or the id is out of range.
+     */
+    T get(int id) {
+        if (id < 0 || id >= TypeDictionary.MAX_TYPES) {
+            return null;
+        }
+        AtomicReferenceArray<T> page = pages.get(id >>> PAGE_BITS);
+        return page != null ? page.get(id & (PAGE_SIZE - 1)) : null;
+    }
+
+    /**
+     * The factory may be called by concurrent threads for the same id, only one of the values is kept. Never
+     * returns null: a value removed right after another thread set it is created again.
+     */
+    T computeIfAbsent(int id, IntFunction<T> factory) {
+        T value = get(id);
+        if (value != null) {
+            return value;
+        }
+        AtomicReferenceArray<T> page = page(id);
+        int slot = id & (PAGE_SIZE - 1);
+        while (true) {
+            T current = page.get(slot);
+            if (current != null) {
+                return current;
+            }
+            if (value == null) {
+                value = factory.apply(id);
+            }
+            if (page.compareAndSet(slot, null, value)) {
+                return value;
+            }
+        }
+    }
+
+    boolean remove(int id, T expected) {
+        return replace(id, expected, null);
+    }
+
+    boolean replace(int id, T expected, T value) {
+        AtomicReferenceArray<T> page = pages.get(id >>> PAGE_BITS);
+        return page != null && page.compareAndSet(id & (PAGE_SIZE - 1), expected, value);
+    }
+
+    private AtomicReferenceArray<T> page(int id) {
+        int index = id >>> PAGE_BITS;
+        AtomicReferenceArray<T> page = pages.get(index);
+        if (page == null) {
+            pages.compareAndSet(index, null, new AtomicReferenceArray<>(PAGE_SIZE));
+            page = pages.get(index);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,94 @@
+package net.intelie.challenges;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time to serve {@code readers} concurrent {@link EventStore#queryAsync} calls, on a pool of platform threads and
+ * on virtual threads. The listener blocks for {@code pauseNanos} on each event, as one writing to a socket would.
+ * <p>
+ * Virtual threads need Java 21 or later, on older JDKs {@code VIRTUAL} falls back to a cached pool of platform
+ * threads, a thread per reader.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadBenchmarks {
+    private static final String TYPE = "type 1";
+    private static final int PLATFORM_THREADS = 200;
+
+    public enum Executor {
+        PLATFORM {
+            @Override
+            ExecutorService create() {
+                return Executors.newFixedThreadPool(PLATFORM_THREADS);
+            }
+        },
+        VIRTUAL {
+            @Override
+            ExecutorService create() {
+                return VirtualThreads.executor();
+            }
+        };
+
+        abstract ExecutorService create();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Readers {
+        @Param({"SYNCH", "LOCKED"})
+        public Benchmarks.Implementation implementation;
+
+        @Param({"PLATFORM", "VIRTUAL"})
+        public Executor executor;
+
+        @Param({"10000"})
+        public int readers;
+
+        @Param({"10"})
+        public int window;
+
+        @Param({"0", "100000"})
+        public long pauseNanos;
+
+        EventStore store;
+        ExecutorService executorService;
+
+        @Setup(Level.Trial)
+        public void populate() {
+            store = implementation.create();
+            for (int i = 0; i < 100_000; i++) {
+                store.insert(new Event(TYPE, i));
+            }
+            executorService = executor.create();
+        }
+
+        @TearDown(Level.Trial)
+        public void shutdown() {
+            executorService.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long serve(Readers state) {
+        EventListener listener = event -> {
+            if (state.pauseNanos > 0) {
+                LockSupport.parkNanos(state.pauseNanos);
+            }
+        };
+        CompletableFuture<?>[] queries = new CompletableFuture<?>[state.readers];
+        for (int i = 0; i < state.readers; i++) {
+            long start = (i * 7919L) % (100_000 - state.window);
+            queries[i] = state.store.queryAsync(TYPE, start, start + state.window, listener, state.executorService);
+        }
+        CompletableFuture.allOf(queries).join();
+        return queries.length;
+    }
+}
@@ -0,0 +1,273 @@
+package net.intelie.challenges;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Sequential log of store operations with group commit.
+ * <p>
+ * Appenders only enqueue their records. A single writer thread takes everything enqueued so far, writes it
+ * with one call and makes it durable with one {@code fsync}, so the cost of an {@code fsync} is shared by all
+ * the records that arrived while the previous one was running.
+ * <p>
+ * Each record is written as its length, a CRC32 of its body and the body itself: operation, timestamp, type,
+ * for removals the position of the event among the ones with its timestamp, and, for events with a
+ * {@link Payload}, the payload encoded by {@link PayloadCodec}. A record cut by a crash fails the check and the log
+ * is truncated at the last complete record.
+ */
+final class WriteAheadLog implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    /* longer records are taken for garbage, the log is truncated before them */
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final Thread writer;
+
+    private List<LogRecord> pending = new ArrayList<>();
+    private long appended;
+    private long durable;
+    private boolean closed;
+    private IOException failure;
+
+    private byte[] bytes = new byte[INITIAL_BUFFER_SIZE];
+    private ByteBuffer view = ByteBuffer.wrap(bytes);
+    private final CRC32 crc = new CRC32();
+    private final PayloadArena payloads = new PayloadArena(false);
+
+    private WriteAheadLog(FileChannel channel) {
+        this.channel = channel;
+        this.writer = new Thread(this::write, "event-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Streams the records already in the log to {@code consumer}, then opens it for appending.
+     */
+    static WriteAheadLog open(Path file, Consumer<LogRecord> consumer) throws IOException {
+        long valid = 0;
+        if (Files.exists(file)) {
+            long size = Files.size(file);
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                CRC32 crc = new CRC32();
+                while (true) {
+                    int length;
+                    try {
+                        length = input.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    /* the length and the checksum take 8 bytes */
+                    if (length > Math.min(MAX_RECORD_LENGTH, size - valid - 8)) {
+                        break;
+                    }
+                    LogRecord record = read(input, length, crc);
+                    if (record == null) {
+                        break;
+                    }
+                    consumer.accept(record);
+                    valid += 8 + length;
+                }
+            }
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(valid);
+        channel.position(valid);
+        return new WriteAheadLog(channel);
+    }
+
+    /**
+     * @return the record or null if it is incomplete or corrupted.
+     */
+    private static LogRecord read(DataInputStream input, int length, CRC32 crc) throws IOException {
+        if (length < 13) {
+            return null;
+        }
+        byte[] body = new byte[length];
+        int checksum;
+        try {
+            checksum = input.readInt();
+            input.readFully(body);
+        } catch (EOFException e) {
+            return null;
+        }
+        crc.reset();
+        crc.update(body, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+
+        ByteBuffer record = ByteBuffer.wrap(body);
+        byte operation = record.get();
+        long timestamp = record.getLong();
+        int typeLength = record.getInt();
+        String type = new String(body, 13, typeLength, StandardCharsets.UTF_8);
+        int payloadOffset = 13 + typeLength;
+        int ordinal = -1;
+        /* removals logged before positions were have nothing after the type */
+        if (operation == LogRecord.REMOVE && payloadOffset + 4 <= length) {
+            ordinal = record.getInt(payloadOffset);
+            payloadOffset += 4;
+        }
+        Payload payload = payloadOffset < length
+                ? PayloadCodec.decode(body, payloadOffset, null) : Payload.EMPTY;
+        return new LogRecord(operation, type, timestamp, payload, ordinal);
+    }
+
+    /**
+     * Enqueues a record.
+     *
+     * @return the sequence number to wait for with {@link #awaitDurable}.
+     */
+    synchronized long append(LogRecord record) {
+        if (closed) {
+            throw new IllegalStateException("log is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        pending.add(record);
+        if (pending.size() == 1) {
+            notifyAll();
+        }
+        return ++appended;
+    }
+
+    /**
+     * Waits until the record with this sequence number is on disk.
+     */
+    synchronized void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        while (durable < sequence && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (durable < sequence) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    private void write() {
+        while (true) {
+            List<LogRecord> batch;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        fail(new InterruptedIOException("log writer interrupted"));
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>(batch.size());
+            }
+
+            try {
+                writeBatch(batch);
+            } catch (IOException e) {
+                fail(e);
+                return;
+            } catch (Throwable e) {
+                fail(new IOException("log writer failed", e));
+                return;
+            }
+
+            synchronized (this) {
+                durable += batch.size();
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Stops the log: whoever waits for a record, or appends one later, gets the failure.
+     */
+    private synchronized void fail(IOException e) {
+        failure = e;
+        notifyAll();
+    }
+
+    private void writeBatch(List<LogRecord> batch) throws IOException {
+        int size = 0;
+        for (LogRecord record : batch) {
+            byte[] type = record.type.getBytes(StandardCharsets.UTF_8);
+            payloads.clear();
+            payloads.append(record.payload);
+            int ordinalLength = record.operation == LogRecord.REMOVE ? 4 : 0;
+            int length = 13 + type.length + ordinalLength + payloads.size();
+            if (bytes.length - size < 8 + length) {
+                flush(size);
+                size = 0;
+                if (bytes.length < 8 + length) {
+                    bytes = new byte[8 + length];
+                    view = ByteBuffer.wrap(bytes);
+                }
+            }
+
+            view.putInt(size, length);
+            view.put(size + 8, record.operation);
+            view.putLong(size + 9, record.timestamp);
+            view.putInt(size + 17, type.length);
+            System.arraycopy(type, 0, bytes, size + 21, type.length);
+            if (ordinalLength > 0) {
+                view.putInt(size + 21 + type.length, record.ordinal);
+            }
+            System.arraycopy(payloads.bytes(), 0, bytes, size + 21 + type.length + ordinalLength, payloads.size());
+            crc.reset();
+            crc.update(bytes, size + 8, length);
+            view.putInt(size + 4, (int) crc.getValue());
+            size += 8 + length;
+        }
+        flush(size);
+        channel.force(false);
+    }
+
+    private void flush(int size) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(bytes, 0, size);
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * Writes what is still pending, then closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        synchronized (this) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -1,28 +1,39 @@
 package net.intelie.challenges.exploration;
 
 import net.intelie.challenges.Event;
+import net.intelie.challenges.EventCursor;
 import net.intelie.challenges.EventIterator;
 
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.StampedLock;
 
+/**
+ * Iterator reading the events with optimistic stamps of the {@link StampedLock} of the store, so readers do not
+ * block writers.
+ * <p>
+ * Every read of the list is an optimistic attempt, validated afterwards; a read racing with a writer may see the
+ * list half changed, even fail, and is done again. After a few failed attempts, or if a writer holds the lock, the
+ * read is done with the read lock. A removal finds the event optimistically too, then converts the stamp into the
+ * write lock only to remove it.
+ */
 public class EventIteratorOptimistic implements EventIterator {
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
     private final StampedLock lock;
 
     private List<Event> events;
     private long startTime;
     private long endTime;
 
-    private Event current;
+    private final EventCursor cursor = new EventCursor();
     private boolean started = false;
     private boolean eof = false;
 
-    private int index;
-    private long currentTimestamp;
-    private long nextTimeStamp;
+    /* results of the last read, the cursor only changes after the read is validated */
+    private int position;
+    private Event found;
+    private final Runnable findNext = this::findNext;
+    private final Runnable findCurrent = this::findCurrent;
 
     public EventIteratorOptimistic(StampedLock lock, List<Event> events, long startTime, long endTime) {
         this.lock = lock;
@@ -31,185 +42,97 @@ public class EventIteratorOptimistic implements EventIterator {
         this.endTime = endTime;
     }
 
-    private void updateCurrent(Event event) {
-        current = event;
-        currentTimestamp = event.timestamp();
-        int i = index + 1;
-        if (i < events.size()) {
-            Event next = events.get(i);
-            nextTimeStamp = next.timestamp();
-        }
-        else {
-            nextTimeStamp = -1;
+    @Override
+    public boolean moveNext() {
+        started = true;
+        if (events == null || eof) {
+            eof = true;
+            return false;
         }
-    }
 
-    private int findInsertPosition(long timestamp) {
-        Event start = new Event("fake", timestamp);
-        int i = Collections.binarySearch(events, start, Comparator.comparingLong(Event::timestamp));
-        if (i < 0) {
-            i = -i - 1;
+        read(findNext);
+        if (found != null && found.timestamp() < endTime) {
+            cursor.moveTo(found, position);
+            return true;
         }
 
-        return i;
+        //TODO não percebe se todos os eventos do tipo foram removidos
+        eof = true;
+        return false;
     }
 
-    private int findCurrentTimestamp() {
-        int i = index;
-        while (i < events.size()) {
-            Event e = events.get(i);
-            if (e.timestamp() > currentTimestamp) {
-                break;
-            }
-            i++;
-        }
-
-        return i;
+    private void findNext() {
+        position = cursor.nextPosition(events, startTime);
+        found = position < events.size() ? events.get(position) : null;
     }
 
-    @Override
-    public boolean moveNext() {
-        if (events == null) {
-            started = true;
-            eof = true;
-            return false;
-        }
+    private void findCurrent() {
+        position = cursor.indexOfCurrent(events);
+    }
 
-        if (!started) {
-            started = true;
-
-            long findStamp = lock.tryOptimisticRead();
-            index = findInsertPosition(startTime);
-            if (!lock.validate(findStamp)) {
-                findStamp = lock.readLock();
-                try {
-                    index = findInsertPosition(startTime);
-                } finally {
-                    lock.unlockRead(findStamp);
-                }
+    /**
+     * @return the optimistic stamp that validated the read, or 0 if it was done with the read lock, already
+     * released.
+     */
+    private long read(Runnable find) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                /* a writer holds the lock, wait for it */
+                break;
             }
-
-            if (index < events.size()) {
-                long stamp = lock.tryOptimisticRead();
-                updateCurrent(events.get(index));
-                if (!lock.validate(stamp)) {
-                    stamp = lock.readLock();
-                    try {
-                        updateCurrent(events.get(index));
-                    } finally {
-                        lock.unlockRead(stamp);
-                    }
+            try {
+                find.run();
+            } catch (RuntimeException e) {
+                if (lock.validate(stamp)) {
+                    throw e;
                 }
-                return true;
+                continue;
             }
-            else {
-                eof = true;
-                return false;
+            if (lock.validate(stamp)) {
+                return stamp;
             }
         }
 
-        if (index < events.size()) {
-            Event check;
-            long stamp = lock.tryOptimisticRead();
-            check = events.get(index);
-            if (!lock.validate(stamp)) {
-                stamp = lock.readLock();
-                try {
-                    check = events.get(index);
-                } finally {
-                    lock.unlockRead(stamp);
-                }
-            }
-            if (check.timestamp() == currentTimestamp) {
-                index++;
-            }
-            else {
-                if (check.timestamp() < nextTimeStamp) {
-                    long forwardStamp = lock.tryOptimisticRead();
-                    index = findCurrentTimestamp();
-                    if (!lock.validate(forwardStamp)) {
-                        forwardStamp = lock.readLock();
-                        try {
-                            index = findCurrentTimestamp();
-                        } finally {
-                            lock.unlockRead(forwardStamp);
-                        }
-                    }
-                }
-                else if (check.timestamp() > nextTimeStamp) {
-                    int i = index;
-                    long readStamp = lock.readLock();
-                    try {
-                        //TODO criar método para poder usar lock otimista
-                        while (i >= 0) {
-                            Event e = events.get(i);
-                            if (e.timestamp() <= nextTimeStamp) {
-                                if (e.timestamp() == nextTimeStamp) {
-                                    index = i;
-                                }
-                                else {
-                                    index = i + 1;
-                                }
-                                break;
-                            }
-                            i--;
-                        }
-                    }
-                    finally {
-                        lock.unlockRead(readStamp);
-                    }
-                }
-            }
+        long stamp = lock.readLock();
+        try {
+            find.run();
+            return 0;
         }
-
-        if (index < events.size()) {
-            long stamp = lock.tryOptimisticRead();
-            Event event = events.get(index);
-            if (!lock.validate(stamp)) {
-                stamp = lock.readLock();
-                try {
-                    event = events.get(index);
-                }
-                finally {
-                    lock.unlockRead(stamp);
-                }
-            }
-            if (event.timestamp() < endTime) {
-                long updateCurrentStamp = lock.tryOptimisticRead();
-                updateCurrent(event);
-                if (!lock.validate(updateCurrentStamp)) {
-                    updateCurrentStamp = lock.readLock();
-                    try {
-                        updateCurrent(event);
-                    }
-                    finally {
-                        lock.unlockRead(updateCurrentStamp);
-                    }
-                }
-
-                return true;
-            }
+        finally {
+            lock.unlockRead(stamp);
         }
-
-        //TODO não percebe se todos os eventos do tipo foram removidos
-        eof = true;
-        return false;
     }
 
     @Override
     public Event current() {
         checkConditions();
 
-        return current;
+        return cursor.current();
     }
 
     @Override
     public void remove() {
         checkConditions();
 
-        long stamp = lock.writeLock();
+        if (cursor.isRemoved()) {
+            return;
+        }
+
+        long stamp = read(findCurrent);
+        if (stamp != 0) {
+            stamp = lock.tryConvertToWriteLock(stamp);
+        }
+        if (stamp == 0) {
+            /* found with the read lock, or changed since it was found */
+            stamp = lock.writeLock();
+            findCurrent();
+        }
         try {
-            events.remove(current);
+            if (position >= 0) {
+                events.remove(position);
+                cursor.markRemoved(position);
+            }
         }
         finally {
             lock.unlockWrite(stamp);
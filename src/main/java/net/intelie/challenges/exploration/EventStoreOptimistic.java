@@ -3,34 +3,71 @@ package net.intelie.challenges.exploration;
 import net.intelie.challenges.Event;
 import net.intelie.challenges.EventIterator;
 import net.intelie.challenges.EventStore;
+import net.intelie.challenges.SortedEvents;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.StampedLock;
 
 public class EventStoreOptimistic implements EventStore {
 
     private static final int INITIAL_CAPACITY = 1000;
 
-    private Map<String, List<Event>> eventsByType = new HashMap<>();
+    /*
+     * Concurrent, so it is read without the lock: optimistic reads are only for the lists, which are searched by
+     * index and fail safely if torn, while a HashMap changed under a traversal may not.
+     */
+    private final Map<String, List<Event>> eventsByType = new ConcurrentHashMap<>();
     private final StampedLock lock = new StampedLock();
 
+    /**
+     * Finds the position of the event with an optimistic read, then converts the stamp into the write lock only
+     * to add it. If the store changed meanwhile, or the type is new, does it all with the write lock.
+     */
     @Override
     public void insert(Event event) {
         String type = event.type();
-        long stamp = lock.writeLock();
+        int index = 0;
+        long stamp = lock.tryOptimisticRead();
+        List<Event> events = this.eventsByType.get(type);
         try {
-            List<Event> events = this.eventsByType.get(type);
+            if (events != null) {
+                index = SortedEvents.upperBound(events, event.timestamp());
+            }
+        } catch (RuntimeException e) {
+            events = null;
+        }
+        stamp = events != null ? lock.tryConvertToWriteLock(stamp) : 0;
+
+        if (stamp == 0) {
+            stamp = lock.writeLock();
+            events = this.eventsByType.get(type);
             if (events == null) {
                 events = new ArrayList<>(INITIAL_CAPACITY);
                 eventsByType.put(type, events);
-                events.add(event);
             }
-            else {
-                int index = Collections.binarySearch(events, event, Comparator.comparingLong(Event::timestamp));
-                if (index < 0) {
-                    index = -index - 1;
+            index = SortedEvents.upperBound(events, event.timestamp());
+        }
+        try {
+            events.add(index, event);
+        }
+        finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Event> batch) {
+        Map<String, List<Event>> groups = SortedEvents.groupByType(batch);
+        long stamp = lock.writeLock();
+        try {
+            for (Map.Entry<String, List<Event>> group : groups.entrySet()) {
+                List<Event> events = this.eventsByType.get(group.getKey());
+                if (events == null) {
+                    events = new ArrayList<>(Math.max(INITIAL_CAPACITY, group.getValue().size()));
+                    eventsByType.put(group.getKey(), events);
                 }
-                events.add(index, event);
+                SortedEvents.merge(events, group.getValue());
             }
         }
         finally {
@@ -42,10 +79,7 @@ public class EventStoreOptimistic implements EventStore {
     public void removeAll(String type) {
         long stamp = lock.writeLock();
         try {
-            List<Event> events = this.eventsByType.get(type);
-            if (events != null) {
-                eventsByType.remove(type);
-            }
+            eventsByType.remove(type);
         }
         finally {
             lock.unlockWrite(stamp);
@@ -57,7 +91,6 @@ public class EventStoreOptimistic implements EventStore {
         if (endTime <= startTime) {
             throw new IllegalArgumentException();
         }
-        List<Event> events = this.eventsByType.get(type);
-        return new EventIteratorOptimistic(lock, events, startTime, endTime);
+        return new EventIteratorOptimistic(lock, this.eventsByType.get(type), startTime, endTime);
     }
 }
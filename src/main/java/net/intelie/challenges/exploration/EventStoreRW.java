@@ -3,6 +3,7 @@ package net.intelie.challenges.exploration;
 import net.intelie.challenges.Event;
 import net.intelie.challenges.EventIterator;
 import net.intelie.challenges.EventStore;
+import net.intelie.challenges.SortedEvents;
 
 import java.util.*;
 import java.util.concurrent.locks.Lock;
@@ -14,9 +15,23 @@ public class EventStoreRW implements EventStore {
     private static final int INITIAL_CAPACITY = 1000;
 
     private Map<String, List<Event>> eventsByType = new HashMap<>();
-    private final ReadWriteLock rwLock = new ReentrantReadWriteLock(true);
-    private final Lock readLock = rwLock.readLock();
-    private final Lock writeLock = rwLock.writeLock();
+    private final ReadWriteLock rwLock;
+    private final Lock readLock;
+    private final Lock writeLock;
+
+    public EventStoreRW() {
+        this(true);
+    }
+
+    /**
+     * @param fair whether the lock is granted in arrival order. A fair lock keeps a writer from waiting forever
+     *             behind a stream of readers, an unfair one lets more readers in at a time.
+     */
+    public EventStoreRW(boolean fair) {
+        rwLock = new ReentrantReadWriteLock(fair);
+        readLock = rwLock.readLock();
+        writeLock = rwLock.writeLock();
+    }
 
     @Override
     public void insert(Event event) {
@@ -30,10 +45,7 @@ public class EventStoreRW implements EventStore {
                 events.add(event);
             }
             else {
-                int index = Collections.binarySearch(events, event, Comparator.comparingLong(Event::timestamp));
-                if (index < 0) {
-                    index = -index - 1;
-                }
+                int index = SortedEvents.upperBound(events, event.timestamp());
                 events.add(index, event);
             }
         }
@@ -42,6 +54,25 @@ public class EventStoreRW implements EventStore {
         }
     }
 
+    @Override
+    public void insertAll(Collection<Event> batch) {
+        Map<String, List<Event>> groups = SortedEvents.groupByType(batch);
+        writeLock.lock();
+        try {
+            for (Map.Entry<String, List<Event>> group : groups.entrySet()) {
+                List<Event> events = this.eventsByType.get(group.getKey());
+                if (events == null) {
+                    events = new ArrayList<>(Math.max(INITIAL_CAPACITY, group.getValue().size()));
+                    eventsByType.put(group.getKey(), events);
+                }
+                SortedEvents.merge(events, group.getValue());
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
     @Override
     public void removeAll(String type) {
         writeLock.lock();
@@ -0,0 +1,173 @@
+package net.intelie.challenges;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class AggregationTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        Collection<Object[]> stores = StoreFactories.all();
+        stores.add(new Object[]{"synch rollup 10", (Supplier<EventStore>) () -> new EventStoreSynch(10)});
+        return stores;
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<EventStore> factory;
+
+    private EventStore store;
+    private final List<Long> timestamps = new ArrayList<>();
+
+    @Before
+    public void init() {
+        store = factory.get();
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            long timestamp = (i * 7919) % 1200 - 200;
+            events.add(new Event("type 1", timestamp));
+            timestamps.add(timestamp);
+        }
+        events.add(new Event("type 2", 5));
+        store.insertAll(events);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StoreFactories.close(store);
+    }
+
+    private long[] expected(long startTime, long endTime, long bucketWidth) {
+        long[] histogram = new long[(int) ((endTime - startTime - 1) / bucketWidth + 1)];
+        for (long timestamp : timestamps) {
+            if (timestamp >= startTime && timestamp < endTime) {
+                histogram[(int) ((timestamp - startTime) / bucketWidth)]++;
+            }
+        }
+        return histogram;
+    }
+
+    private void assertAggregates(long startTime, long endTime, long bucketWidth) {
+        long count = 0;
+        for (long bucket : expected(startTime, endTime, bucketWidth)) {
+            count += bucket;
+        }
+        assertEquals(count, store.count("type 1", startTime, endTime));
+        assertArrayEquals(expected(startTime, endTime, bucketWidth), store.histogram("type 1", startTime, endTime, bucketWidth));
+    }
+
+    @Test
+    public void givenAlignedBuckets_thenCountsMatch() {
+        assertAggregates(-200, 800, 100);
+        assertAggregates(0, 1000, 10);
+        assertAggregates(-300, 1005, 50);
+        assertAggregates(-200, 1000, 600);
+    }
+
+    @Test
+    public void givenUnalignedBuckets_thenCountsMatch() {
+        assertAggregates(-195, 799, 33);
+        assertAggregates(3, 10, 7);
+        assertAggregates(1, 1000, 1000);
+        assertAggregates(-1000, 5000, 7);
+    }
+
+    @Test
+    public void givenRemovals_thenCountsAreUpdated() {
+        EventIterator eventIterator = store.query("type 1", 0, 500);
+        while (eventIterator.moveNext()) {
+            if (eventIterator.current().timestamp() % 3 == 0) {
+                eventIterator.remove();
+            }
+        }
+        timestamps.removeIf(timestamp -> timestamp >= 0 && timestamp < 500 && timestamp % 3 == 0);
+
+        assertAggregates(-200, 800, 100);
+        assertAggregates(-195, 799, 33);
+    }
+
+    @Test
+    public void givenUnknownType_thenEverythingIsZero() {
+        assertEquals(0, store.count("type 3", 0, 1000));
+        assertArrayEquals(new long[4], store.histogram("type 3", 0, 1000, 250));
+    }
+
+    @Test
+    public void givenRemoveAll_thenEverythingIsZero() {
+        store.removeAll("type 1");
+        assertEquals(0, store.count("type 1", -200, 800));
+        assertArrayEquals(new long[10], store.histogram("type 1", -200, 800, 100));
+        assertEquals(1, store.count("type 2", 0, 10));
+    }
+
+    @Test
+    public void givenDefaultAggregates_thenIteratorsAreClosed() {
+        AtomicInteger closed = new AtomicInteger();
+        EventStore closeable = new EventStore() {
+            @Override
+            public void insert(Event event) {
+                store.insert(event);
+            }
+
+            @Override
+            public void removeAll(String type) {
+                store.removeAll(type);
+            }
+
+            @Override
+            public EventIterator query(String type, long startTime, long endTime) {
+                EventIterator eventIterator = store.query(type, startTime, endTime);
+                return new EventIterator() {
+                    @Override
+                    public boolean moveNext() {
+                        return eventIterator.moveNext();
+                    }
+
+                    @Override
+                    public Event current() {
+                        return eventIterator.current();
+                    }
+
+                    @Override
+                    public void remove() {
+                        eventIterator.remove();
+                    }
+
+                    @Override
+                    public void close() throws Exception {
+                        closed.incrementAndGet();
+                        eventIterator.close();
+                    }
+                };
+            }
+        };
+
+        assertEquals(store.count("type 1", -200, 800), closeable.count("type 1", -200, 800));
+        assertArrayEquals(store.histogram("type 1", -200, 800, 100), closeable.histogram("type 1", -200, 800, 100));
+        assertEquals(2, closed.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongBucketWidth() {
+        store.histogram("type 1", 0, 1000, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongRange() {
+        store.histogram("type 1", 1000, 0, 10);
+    }
+}
@@ -0,0 +1,214 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DurableEventStoreTest {
+
+    private static List<Long> read(EventStore store, String type) {
+        List<Long> timestamps = new ArrayList<>();
+        EventIterator eventIterator = store.query(type, 0, Long.MAX_VALUE);
+        while (eventIterator.moveNext()) {
+            timestamps.add(eventIterator.current().timestamp());
+        }
+        return timestamps;
+    }
+
+    @Test
+    public void givenRestart_thenPayloadsAreRecovered() throws IOException {
+        Path log = StoreFactories.temporaryDirectory().resolve("events.log");
+        Payload payload = Payload.of("pump 3", -0.25, "pressure");
+
+        try (DurableEventStore store = new DurableEventStore(new EventStoreSynch(), log)) {
+            store.insert(new Event("type 1", 1, payload));
+            store.insertAll(Arrays.asList(new Event("type 1", 2), new Event("type 1", 3, Payload.of(null, 7))));
+        }
+
+        EventStore recovered = new EventStoreColumnar();
+        new DurableEventStore(recovered, log).close();
+        EventIterator eventIterator = recovered.query("type 1", 0, 10);
+        assertTrue(eventIterator.moveNext());
+        assertEquals(payload, eventIterator.current().payload());
+        assertTrue(eventIterator.moveNext());
+        assertTrue(eventIterator.current().payload().isEmpty());
+        assertTrue(eventIterator.moveNext());
+        assertEquals(Payload.of(null, 7), eventIterator.current().payload());
+    }
+
+    @Test
+    public void givenSecondOfSameTimestampRemoved_thenRecoveryRemovesTheSameEvent() throws IOException {
+        Path log = StoreFactories.temporaryDirectory().resolve("events.log");
+        Payload first = Payload.of("pump 1", 1);
+        Payload second = Payload.of("pump 2", 2);
+
+        try (DurableEventStore store = new DurableEventStore(new EventStoreSynch(), log)) {
+            store.insert(new Event("type 1", 5, first));
+            store.insert(new Event("type 1", 5, second));
+
+            EventIterator eventIterator = store.query("type 1", 5, 6);
+            assertTrue(eventIterator.moveNext());
+            assertTrue(eventIterator.moveNext());
+            assertEquals(second, eventIterator.current().payload());
+            eventIterator.remove();
+        }
+
+        EventStore recovered = new EventStoreSynch();
+        new DurableEventStore(recovered, log).close();
+        EventIterator eventIterator = recovered.query("type 1", 0, 10);
+        assertTrue(eventIterator.moveNext());
+        assertEquals(first, eventIterator.current().payload());
+        assertFalse(eventIterator.moveNext());
+    }
+
+    @Test
+    public void givenReadOnlyCalls_thenTheyGoToTheStoreWithoutQuerying() throws IOException {
+        Path log = StoreFactories.temporaryDirectory().resolve("events.log");
+        AtomicInteger queries = new AtomicInteger();
+        EventStoreSynch synch = new EventStoreSynch() {
+            @Override
+            public EventIterator query(String type, long startTime, long endTime) {
+                queries.incrementAndGet();
+                return super.query(type, startTime, endTime);
+            }
+        };
+
+        try (DurableEventStore store = new DurableEventStore(synch, log)) {
+            store.insertAll(Arrays.asList(new Event("type 1", 1), new Event("type 1", 2), new Event("type 1", 12)));
+            assertEquals(2, store.count("type 1", 0, 10));
+            assertArrayEquals(new long[]{2, 1}, store.histogram("type 1", 0, 20, 10));
+            try (Stream<Event> stream = store.stream("type 1", 0, 10)) {
+                assertEquals(2, stream.count());
+            }
+        }
+        assertEquals(0, queries.get());
+    }
+
+    @Test
+    public void givenRestart_thenOperationsAreRecovered() throws IOException {
+        Path log = StoreFactories.temporaryDirectory().resolve("events.log");
+
+        try (DurableEventStore store = new DurableEventStore(new EventStoreSynch(), log)) {
+            store.insert(new Event("type 1", 1));
+            store.insert(new Event("type 1", 3));
+            store.insert(new Event("type 1", 5));
+            store.insert(new Event("type 2", 2));
+            store.insert(new Event("type 3", 4));
+            store.removeAll("type 3");
+
+            EventIterator eventIterator = store.query("type 1", 3, 4);
+            assertTrue(eventIterator.moveNext());
+            eventIterator.remove();
+        }
+
+        EventStore recovered = new EventStoreSynch();
+        try (DurableEventStore store = new DurableEventStore(recovered, log, 2)) {
+            assertEquals(Arrays.asList(1L, 5L), read(recovered, "type 1"));
+            assertEquals(Arrays.asList(2L), read(recovered, "type 2"));
+            assertTrue(read(recovered, "type 3").isEmpty());
+
+            store.insert(new Event("type 3", 6));
+        }
+
+        recovered = new EventStoreSynch();
+        new DurableEventStore(recovered, log).close();
+        assertEquals(Arrays.asList(6L), read(recovered, "type 3"));
+    }
+
+    @Test
+    public void givenConcurrentWriters_thenEveryInsertIsRecovered() throws IOException, InterruptedException {
+        Path log = StoreFactories.temporaryDirectory().resolve("events.log");
+
+        try (DurableEventStore store = new DurableEventStore(new EventStoreSynch(), log)) {
+            ExecutorService executorService = Executors.newFixedThreadPool(8);
+            IntStream
+                    .range(0, 8)
+                    .forEach(w -> executorService.execute(() -> IntStream
+                            .range(0, 100)
+                            .forEach(timestamp -> store.insert(new Event("type " + w % 4, timestamp)))));
+            executorService.shutdown();
+            executorService.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        EventStore recovered = new EventStoreSynch();
+        new DurableEventStore(recovered, log, 4).close();
+        for (int t = 0; t < 4; t++) {
+            assertEquals(200, read(recovered, "type " + t).size());
+        }
+    }
+
+    @Test
+    public void givenTornRecord_thenLogIsTruncated() throws IOException {
+        Path log = StoreFactories.temporaryDirectory().resolve("events.log");
+
+        try (DurableEventStore store = new DurableEventStore(new EventStoreSynch(), log)) {
+            store.insert(new Event("type 1", 1));
+            store.insert(new Event("type 1", 2));
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        EventStore recovered = new EventStoreSynch();
+        try (DurableEventStore store = new DurableEventStore(recovered, log)) {
+            assertEquals(Arrays.asList(1L), read(recovered, "type 1"));
+            store.insert(new Event("type 1", 3));
+        }
+
+        recovered = new EventStoreSynch();
+        new DurableEventStore(recovered, log).close();
+        assertEquals(Arrays.asList(1L, 3L), read(recovered, "type 1"));
+    }
+
+    @Test
+    public void givenGarbageLength_thenLogIsTruncated() throws IOException {
+        Path log = StoreFactories.temporaryDirectory().resolve("events.log");
+
+        try (DurableEventStore store = new DurableEventStore(new EventStoreSynch(), log)) {
+            store.insert(new Event("type 1", 1));
+        }
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0, 0}));
+        }
+
+        EventStore recovered = new EventStoreSynch();
+        new DurableEventStore(recovered, log).close();
+        assertEquals(Arrays.asList(1L), read(recovered, "type 1"));
+    }
+
+    @Test
+    public void givenRemoveOfEventAlreadyRemoved_thenRestartKeepsTheOthers() throws IOException {
+        Path log = StoreFactories.temporaryDirectory().resolve("events.log");
+
+        try (DurableEventStore store = new DurableEventStore(new EventStoreSynch(), log)) {
+            store.insert(new Event("type 1", 1));
+            EventIterator first = store.query("type 1", 0, 10);
+            EventIterator second = store.query("type 1", 0, 10);
+            assertTrue(first.moveNext());
+            assertTrue(second.moveNext());
+            first.remove();
+            store.insert(new Event("type 1", 1));
+            second.remove();
+            assertEquals(Arrays.asList(1L), read(store, "type 1"));
+        }
+
+        EventStore recovered = new EventStoreSynch();
+        new DurableEventStore(recovered, log).close();
+        assertEquals(Arrays.asList(1L), read(recovered, "type 1"));
+    }
+}
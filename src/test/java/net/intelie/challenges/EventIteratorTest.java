@@ -1,14 +1,33 @@
 package net.intelie.challenges;
 
 import net.intelie.challenges.exploration.EventStoreOptimistic;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.function.Supplier;
 
 import static org.junit.Assert.*;
 
+@RunWith(Parameterized.class)
 public class EventIteratorTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return StoreFactories.all();
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<EventStore> factory;
+
     private EventStore store;
 
     /**
@@ -27,7 +46,12 @@ public class EventIteratorTest {
 
     @Before
     public void init() {
-        store = new EventStoreSynch();
+        store = factory.get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StoreFactories.close(store);
     }
 
     @Test
@@ -0,0 +1,217 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EventStoreColumnarTest {
+
+    @Test
+    public void givenOutOfOrderInserts_thenQueriesAreSorted() {
+        EventStore store = new EventStoreColumnar();
+        List<Long> sorted = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            long timestamp = random.nextInt(300);
+            store.insert(new Event("type 1", timestamp));
+            sorted.add(timestamp);
+        }
+        sorted.sort(Long::compare);
+
+        List<Long> read = new ArrayList<>();
+        EventIterator eventIterator = store.query("type 1", 0, 300);
+        while (eventIterator.moveNext()) {
+            read.add(eventIterator.current().timestamp());
+        }
+        assertEquals(sorted, read);
+    }
+
+    @Test
+    public void givenDuplicatedTimestamps_thenRemoveOnlyOne() {
+        EventStore store = new EventStoreColumnar();
+        store.insert(new Event("type 1", 1));
+        store.insert(new Event("type 1", 1));
+        store.insert(new Event("type 1", 1));
+
+        EventIterator eventIterator = store.query("type 1", 0, 10);
+        assertTrue(eventIterator.moveNext());
+        eventIterator.remove();
+        eventIterator.remove();
+        int count = 0;
+        while (eventIterator.moveNext()) {
+            count++;
+        }
+        assertEquals(2, count);
+    }
+
+    private static Payload pump(int i) {
+        return Payload.of("pump " + i, i);
+    }
+
+    @Test
+    public void givenSameTimestampRemovedByAnotherIterator_thenCurrentIsFoundByPayload() {
+        EventStore store = new EventStoreColumnar();
+        for (int i = 0; i < 5; i++) {
+            store.insert(new Event("type 1", 5, pump(i)));
+        }
+
+        EventIterator reader = store.query("type 1", 0, 10);
+        assertTrue(reader.moveNext());
+        assertTrue(reader.moveNext());
+        EventIterator remover = store.query("type 1", 0, 10);
+        assertTrue(remover.moveNext());
+        remover.remove();
+
+        assertTrue(reader.moveNext());
+        assertEquals(pump(2), reader.current().payload());
+        assertTrue(remover.moveNext());
+        remover.remove();
+        reader.remove();
+
+        List<Payload> left = new ArrayList<>();
+        EventIterator eventIterator = store.query("type 1", 0, 10);
+        while (eventIterator.moveNext()) {
+            left.add(eventIterator.current().payload());
+        }
+        assertEquals(Arrays.asList(pump(3), pump(4)), left);
+        assertTrue(reader.moveNext());
+        assertEquals(pump(3), reader.current().payload());
+    }
+
+    @Test
+    public void givenPayloadsCompactedByAnotherIterator_thenCurrentIsFoundByPayload() {
+        ColumnarEvents events = new ColumnarEvents("type 1");
+        for (int i = 0; i < 200; i++) {
+            events.insert(5, pump(i));
+        }
+
+        EventIterator reader = new EventIteratorColumnar(events, 0, 10);
+        for (int i = 0; i <= 150; i++) {
+            assertTrue(reader.moveNext());
+        }
+        EventIterator remover = new EventIteratorColumnar(events, 0, 10);
+        for (int i = 0; i < 140; i++) {
+            assertTrue(remover.moveNext());
+            remover.remove();
+        }
+        assertTrue(events.payloadVersion() > 0);
+
+        assertEquals(pump(150), reader.current().payload());
+        reader.remove();
+        assertTrue(reader.moveNext());
+        assertEquals(pump(151), reader.current().payload());
+        assertEquals(59, events.size());
+    }
+
+    @Test
+    public void currentIsCreatedOncePerPosition() {
+        EventStore store = new EventStoreColumnar();
+        store.insert(new Event("type 1", 1));
+
+        EventIterator eventIterator = store.query("type 1", 0, 10);
+        assertTrue(eventIterator.moveNext());
+        Event event = eventIterator.current();
+        assertSame(event, eventIterator.current());
+        assertEquals("type 1", event.type());
+        assertEquals(1L, event.timestamp());
+    }
+
+    private static List<Long> read(EventStore store, long startTime, long endTime) {
+        List<Long> read = new ArrayList<>();
+        EventIterator eventIterator = store.query("type 1", startTime, endTime);
+        while (eventIterator.moveNext()) {
+            read.add(eventIterator.current().timestamp());
+        }
+        return read;
+    }
+
+    @Test
+    public void givenLateInsertsAndRemovals_thenSealedBlocksStaySorted() {
+        EventStore store = new EventStoreColumnar();
+        List<Long> sorted = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long timestamp = random.nextInt(10) == 0 ? random.nextInt(i + 1) : i;
+            store.insert(new Event("type 1", timestamp));
+            sorted.add(timestamp);
+        }
+        sorted.sort(Long::compare);
+        assertEquals(sorted, read(store, 0, Long.MAX_VALUE));
+
+        EventIterator eventIterator = store.query("type 1", 0, Long.MAX_VALUE);
+        List<Long> kept = new ArrayList<>();
+        while (eventIterator.moveNext()) {
+            if (random.nextInt(3) == 0) {
+                kept.add(eventIterator.current().timestamp());
+            }
+            else {
+                eventIterator.remove();
+            }
+        }
+        assertEquals(kept, read(store, 0, Long.MAX_VALUE));
+
+        long start = kept.get(kept.size() / 3);
+        long end = kept.get(kept.size() / 2);
+        assertEquals(kept.subList(kept.indexOf(start), kept.indexOf(end)), read(store, start, end));
+    }
+
+    @Test
+    public void givenMostOfEachBlockRemoved_thenBlocksAreMerged() {
+        ColumnarEvents events = new ColumnarEvents("type 1");
+        for (int i = 0; i < 20 * ColumnarEvents.BLOCK_SIZE; i++) {
+            events.insert(i, Payload.EMPTY);
+        }
+        int blocks = events.blockCount();
+        assertTrue(blocks >= 18);
+
+        /* keeps one in every ten events */
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (i % 10 != 0) {
+                events.remove(i);
+            }
+        }
+
+        assertTrue(events.blockCount() <= blocks / 4);
+        ColumnarEvents.Reader reader = new ColumnarEvents.Reader(events);
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i * 10L, reader.timestamp(i));
+        }
+    }
+
+    @Test
+    public void givenSmallGaps_thenTimestampsTakeAFifthOfTheMemory() {
+        ColumnarEvents events = new ColumnarEvents("type 1");
+        Random random = new Random(42);
+        long timestamp = 1_600_000_000_000L;
+        int size = 100_000;
+        for (int i = 0; i < size; i++) {
+            timestamp += random.nextInt(100);
+            events.insert(timestamp, Payload.EMPTY);
+        }
+
+        assertTrue(events.blockCount() > 0);
+        assertTrue(events.timestampBytes() * 5 <= 8L * size);
+    }
+
+    @Test
+    public void givenExtremeTimestamps_thenBlocksDecodeThem() {
+        long[] timestamps = {Long.MIN_VALUE, Long.MIN_VALUE, -1, 0, 0, 127, 128, Long.MAX_VALUE};
+        TimestampBlock block = TimestampBlock.encode(timestamps, 0, timestamps.length);
+        long[] decoded = new long[timestamps.length];
+        block.decode(decoded);
+
+        assertArrayEquals(timestamps, decoded);
+        assertEquals(Long.MIN_VALUE, block.min());
+        assertEquals(Long.MAX_VALUE, block.max());
+        assertEquals(3, block.lowerBound(0));
+        assertEquals(5, block.lowerBound(1));
+        assertEquals(timestamps.length - 1, block.lowerBound(Long.MAX_VALUE));
+    }
+}
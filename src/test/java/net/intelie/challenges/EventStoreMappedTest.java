@@ -0,0 +1,85 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventStoreMappedTest {
+
+    private static List<Long> read(EventStore store, String type) {
+        List<Long> timestamps = new ArrayList<>();
+        EventIterator eventIterator = store.query(type, 0, Long.MAX_VALUE);
+        while (eventIterator.moveNext()) {
+            timestamps.add(eventIterator.current().timestamp());
+        }
+        return timestamps;
+    }
+
+    @Test
+    public void givenReopenedStore_thenEventsSurvive() throws IOException {
+        Path directory = StoreFactories.temporaryDirectory();
+
+        try (EventStoreMapped store = new EventStoreMapped(directory)) {
+            store.insert(new Event("type 1", 3));
+            store.insert(new Event("type 1", 1));
+            store.insert(new Event("type 2", 2));
+            store.insert(new Event("type 3", 4));
+            store.removeAll("type 3");
+        }
+
+        try (EventStoreMapped store = new EventStoreMapped(directory)) {
+            assertEquals(Arrays.asList(1L, 3L), read(store, "type 1"));
+            assertEquals(Arrays.asList(2L), read(store, "type 2"));
+            assertEquals(Collections.<Long>emptyList(), read(store, "type 3"));
+
+            store.insert(new Event("type 4", 5));
+            store.insert(new Event("type 1", 2));
+        }
+
+        try (EventStoreMapped store = new EventStoreMapped(directory)) {
+            assertEquals(Arrays.asList(1L, 2L, 3L), read(store, "type 1"));
+            assertEquals(Arrays.asList(5L), read(store, "type 4"));
+        }
+    }
+
+    @Test
+    public void givenManyEvents_thenFileGrows() throws IOException {
+        try (EventStoreMapped store = new EventStoreMapped(StoreFactories.temporaryDirectory())) {
+            for (int timestamp = 9999; timestamp >= 0; timestamp--) {
+                store.insert(new Event("type 1", timestamp));
+            }
+
+            List<Long> timestamps = read(store, "type 1");
+            assertEquals(10000, timestamps.size());
+            for (int i = 0; i < timestamps.size(); i++) {
+                assertEquals(i, timestamps.get(i).longValue());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void givenHeaderCountBeyondTheFile_thenOpenFails() throws IOException {
+        Path file = StoreFactories.temporaryDirectory().resolve("type.events");
+        MappedEvents events = MappedEvents.open(file, "type 1", 1);
+        events.insert(1);
+        events.close();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer count = ByteBuffer.allocate(8);
+            count.putLong(0, Integer.MAX_VALUE);
+            channel.write(count, 8);
+        }
+
+        MappedEvents.open(file, "type 1", 1);
+    }
+}
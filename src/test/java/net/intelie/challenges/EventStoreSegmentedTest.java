@@ -0,0 +1,372 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EventStoreSegmentedTest {
+
+    private static List<Long> read(EventStore store, long startTime, long endTime) {
+        List<Long> timestamps = new ArrayList<>();
+        EventIterator eventIterator = store.query("type 1", startTime, endTime);
+        while (eventIterator.moveNext()) {
+            timestamps.add(eventIterator.current().timestamp());
+        }
+        return timestamps;
+    }
+
+    private static List<Long> expected(List<Long> sorted, long startTime, long endTime) {
+        List<Long> timestamps = new ArrayList<>();
+        for (long timestamp : sorted) {
+            if (timestamp >= startTime && timestamp < endTime) {
+                timestamps.add(timestamp);
+            }
+        }
+        return timestamps;
+    }
+
+    @Test
+    public void givenOutOfOrderInserts_thenQueriesAreSorted() {
+        EventStore store = new EventStoreSegmented(4);
+        List<Long> sorted = new ArrayList<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            long timestamp = random.nextInt(500);
+            store.insert(new Event("type 1", timestamp));
+            sorted.add(timestamp);
+        }
+        sorted.sort(Long::compare);
+
+        assertEquals(sorted, read(store, 0, 500));
+        assertEquals(expected(sorted, 100, 101), read(store, 100, 101));
+        assertEquals(expected(sorted, 250, 333), read(store, 250, 333));
+        assertEquals(expected(sorted, -10, 10), read(store, -10, 10));
+    }
+
+    @Test
+    public void givenRemovals_thenSegmentsStayConsistent() {
+        EventStore store = new EventStoreSegmented(4);
+        List<Long> sorted = new ArrayList<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 1000; i++) {
+            long timestamp = random.nextInt(200);
+            store.insert(new Event("type 1", timestamp));
+            sorted.add(timestamp);
+        }
+        sorted.sort(Long::compare);
+
+        EventIterator eventIterator = store.query("type 1", 0, 200);
+        while (eventIterator.moveNext()) {
+            if (eventIterator.current().timestamp() % 3 == 0) {
+                eventIterator.remove();
+            }
+        }
+        sorted.removeIf(timestamp -> timestamp % 3 == 0);
+
+        assertEquals(sorted, read(store, 0, 200));
+
+        for (int i = 0; i < 1000; i++) {
+            long timestamp = random.nextInt(200);
+            store.insert(new Event("type 1", timestamp));
+            sorted.add(timestamp);
+        }
+        sorted.sort(Long::compare);
+
+        assertEquals(sorted, read(store, 0, 200));
+        assertEquals(expected(sorted, 50, 60), read(store, 50, 60));
+    }
+
+    @Test
+    public void givenRemoveAll_thenOpenIteratorsEnd() {
+        EventStore store = new EventStoreSegmented();
+        store.insert(new Event("type 1", 1));
+        store.insert(new Event("type 1", 2));
+
+        EventIterator eventIterator = store.query("type 1", 0, 10);
+        assertTrue(eventIterator.moveNext());
+
+        store.removeAll("type 1");
+        assertFalse(eventIterator.moveNext());
+    }
+
+    @Test
+    public void givenRemoveAllBeforeFirstMoveNext_thenCurrentHasNoMoreEvents() {
+        EventStore store = new EventStoreSegmented();
+        store.insert(new Event("type 1", 1));
+
+        EventIterator eventIterator = store.query("type 1", 0, 10);
+        store.removeAll("type 1");
+        assertFalse(eventIterator.moveNext());
+        try {
+            eventIterator.current();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("no more events", e.getMessage());
+        }
+    }
+
+    @Test
+    public void givenVisitedDuplicateRemovedByAnotherIterator_thenNextDuplicateIsNotSkipped() {
+        for (EventStore store : new EventStore[]{new EventStoreSegmented(), new EventStoreSegmented(2)}) {
+            List<Event> duplicates = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                store.insert(new Event("type 1", i));
+            }
+            for (int i = 0; i < 4; i++) {
+                Event event = new Event("type 1", 5);
+                duplicates.add(event);
+                store.insert(event);
+            }
+            store.insert(new Event("type 1", 6));
+
+            EventIterator reader = store.query("type 1", 5, 10);
+            assertTrue(reader.moveNext());
+            assertTrue(reader.moveNext());
+            assertSame(duplicates.get(1), reader.current());
+
+            EventIterator remover = store.query("type 1", 5, 6);
+            assertTrue(remover.moveNext());
+            remover.remove();
+
+            assertTrue(reader.moveNext());
+            assertSame(duplicates.get(2), reader.current());
+            reader.remove();
+            assertTrue(reader.moveNext());
+            assertSame(duplicates.get(3), reader.current());
+            assertTrue(reader.moveNext());
+            assertEquals(6L, reader.current().timestamp());
+            assertFalse(reader.moveNext());
+        }
+    }
+
+    private static List<Long> read(EventIterator eventIterator) {
+        List<Long> timestamps = new ArrayList<>();
+        while (eventIterator.moveNext()) {
+            timestamps.add(eventIterator.current().timestamp());
+        }
+        return timestamps;
+    }
+
+    @Test
+    public void givenChangesAfterSnapshot_thenSnapshotIsStable() throws Exception {
+        EventStoreSegmented store = new EventStoreSegmented(4);
+        List<Long> sorted = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            long timestamp = random.nextInt(100);
+            store.insert(new Event("type 1", timestamp));
+            sorted.add(timestamp);
+        }
+        sorted.sort(Long::compare);
+
+        EventIterator snapshot = store.querySnapshot("type 1", 10, 90);
+        EventIterator whole = store.querySnapshot("type 1", 0, 1000);
+        assertTrue(snapshot.moveNext());
+
+        for (int i = 0; i < 500; i++) {
+            store.insert(new Event("type 1", random.nextInt(200)));
+        }
+        EventIterator eventIterator = store.query("type 1", 0, 50);
+        while (eventIterator.moveNext()) {
+            eventIterator.remove();
+        }
+
+        List<Long> timestamps = new ArrayList<>();
+        timestamps.add(snapshot.current().timestamp());
+        timestamps.addAll(read(snapshot));
+        assertEquals(expected(sorted, 10, 90), timestamps);
+        assertEquals(sorted, read(whole));
+        snapshot.close();
+        whole.close();
+
+        store.removeAll("type 1");
+        try (EventIterator afterRemoveAll = store.querySnapshot("type 1", 0, 1000)) {
+            assertFalse(afterRemoveAll.moveNext());
+        }
+    }
+
+    @Test
+    public void givenSnapshotRemove_thenStoreChanges() throws Exception {
+        EventStoreSegmented store = new EventStoreSegmented(4);
+        for (int i = 0; i < 20; i++) {
+            store.insert(new Event("type 1", i));
+        }
+
+        try (EventIterator eventIterator = store.querySnapshot("type 1", 0, 20)) {
+            while (eventIterator.moveNext()) {
+                if (eventIterator.current().timestamp() % 2 == 0) {
+                    eventIterator.remove();
+                }
+            }
+        }
+
+        List<Long> odd = new ArrayList<>();
+        for (long i = 1; i < 20; i += 2) {
+            odd.add(i);
+        }
+        assertEquals(odd, read(store, 0, 20));
+    }
+
+    @Test
+    public void givenPinnedHead_thenItIsCopiedUntilReleased() {
+        Segment head = new Segment(4);
+        assertSame(head, head.insert(new Event("type 1", 1)));
+
+        head.pin();
+        Segment copy = head.insert(new Event("type 1", 2));
+        assertNotSame(head, copy);
+        assertEquals(1, head.size());
+        assertEquals(2, copy.size());
+        assertNotSame(head, head.remove(0));
+        assertEquals(1, head.size());
+
+        head.unpin();
+        assertSame(head, head.insert(new Event("type 1", 3)));
+    }
+
+    @Test
+    public void givenInsertsInTheHead_thenSealedSegmentsAreShared() {
+        SegmentedEvents events = new SegmentedEvents(4, 0.25);
+        for (int i = 0; i < 10; i++) {
+            events.insert(new Event("type 1", i));
+        }
+        Segment[] sealed = events.sealedSegments();
+        assertTrue(sealed.length > 0);
+
+        Segment head = events.pinHead();
+        events.insert(new Event("type 1", 10));
+        assertSame(sealed, events.sealedSegments());
+        events.release(head);
+
+        events.insert(new Event("type 1", 0));
+        assertNotSame(sealed, events.sealedSegments());
+    }
+
+    @Test
+    public void givenSealedRemove_thenEventsAreMarkedNotCopied() {
+        Segment head = new Segment(4);
+        Event[] events = new Event[4];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new Event("type 1", i);
+            head.insert(events[i]);
+        }
+        Segment sealed = head.seal(0, 4);
+
+        Segment removed = sealed.remove(1);
+        assertEquals(4, removed.size());
+        assertEquals(1, removed.deleted());
+        assertTrue(removed.isDeleted(1));
+        assertFalse(sealed.isDeleted(1));
+        assertEquals(-1, removed.indexOf(events[1]));
+        assertEquals(2, removed.indexOf(events[2]));
+
+        Segment compacted = removed.compact();
+        assertEquals(3, compacted.size());
+        assertEquals(0, compacted.deleted());
+        assertSame(events[2], compacted.get(1));
+    }
+
+    /**
+     * @return how many segments have at least a quarter of their events removed.
+     */
+    private static int toCompact(SegmentedEvents events) {
+        synchronized (events) {
+            int segments = 0;
+            for (Map.Entry<Long, Segment> entry = events.segmentFor(Long.MIN_VALUE); entry != null;
+                 entry = events.nextSegment(entry.getKey())) {
+                Segment segment = entry.getValue();
+                if (segment.deleted() > 0 && segment.deleted() >= segment.size() / 4.0) {
+                    segments++;
+                }
+            }
+            return segments;
+        }
+    }
+
+    @Test
+    public void givenManyRemovals_thenSegmentsAreCompacted() throws Exception {
+        SegmentedEvents events = new SegmentedEvents(8, 0.25);
+        List<Event> inserted = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Event event = new Event("type 1", i);
+            inserted.add(event);
+            synchronized (events) {
+                events.insert(event);
+            }
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            synchronized (events) {
+                assertTrue(events.remove(inserted.get(i)));
+                assertFalse(events.remove(inserted.get(i)));
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (toCompact(events) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, toCompact(events));
+
+        EventIterator eventIterator = new EventIteratorSegmented(events, 0, 1000);
+        for (int i = 1; i < 1000; i += 2) {
+            assertTrue(eventIterator.moveNext());
+            assertSame(inserted.get(i), eventIterator.current());
+        }
+        assertFalse(eventIterator.moveNext());
+    }
+
+    @Test
+    public void givenRemovalsPastTheThreshold_thenSegmentIsCompactedOnce() throws Exception {
+        SegmentedEvents events = new SegmentedEvents(8, 0.25);
+        List<Event> inserted = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Event event = new Event("type 1", i);
+            inserted.add(event);
+            synchronized (events) {
+                events.insert(event);
+            }
+        }
+        synchronized (events) {
+            for (int i = 0; i < 7; i++) {
+                assertTrue(events.remove(inserted.get(i)));
+            }
+            assertEquals(1, events.pendingCompactions());
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (toCompact(events) > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, toCompact(events));
+        synchronized (events) {
+            assertEquals(0, events.pendingCompactions());
+        }
+    }
+
+    @Test
+    public void wrongCompactionThreshold() {
+        try {
+            new EventStoreSegmented(4, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void wrongSegmentCapacity() {
+        try {
+            new EventStoreSegmented(1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+}
@@ -1,24 +1,50 @@
 package net.intelie.challenges;
 
 import net.intelie.challenges.exploration.EventStoreOptimistic;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 
+@RunWith(Parameterized.class)
 public class EventStoreTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return StoreFactories.all();
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<EventStore> factory;
+
     private EventStore store;
 
     @Before
     public void init() {
-        store = new EventStoreSynch();
+        store = factory.get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StoreFactories.close(store);
     }
 
     @Rule
@@ -73,4 +99,106 @@ public class EventStoreTest {
         assertEquals(2, count);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenNoEventsInWindow_thenFirstMoveNextIsFalse() {
+        store.insert(new Event("type 1", 1));
+        store.insert(new Event("type 1", 10));
+
+        assertFalse(store.query("type 1", 2, 10).moveNext());
+    }
+
+    @Test
+    public void givenDuplicatedTimestamps_thenAllAreIterated() {
+        for (int i = 0; i < 5; i++) {
+            store.insert(new Event("type 1", 2));
+            store.insert(new Event("type 1", 1));
+            store.insert(new Event("type 1", 3));
+        }
+
+        EventIterator eventIterator = store.query("type 1", 2, 3);
+        int count = 0;
+        while (eventIterator.moveNext()) {
+            assertEquals(2, eventIterator.current().timestamp());
+            count++;
+        }
+        assertEquals(5, count);
+    }
+
+    @Test
+    public void givenDuplicatedTimestamps_thenIteratorRemovesEachOfThem() {
+        for (int i = 0; i < 5; i++) {
+            store.insert(new Event("type 1", 1));
+            store.insert(new Event("type 1", 2));
+        }
+
+        EventIterator eventIterator = store.query("type 1", 0, 10);
+        int count = 0;
+        while (eventIterator.moveNext()) {
+            if (eventIterator.current().timestamp() == 1) {
+                eventIterator.remove();
+            }
+            count++;
+        }
+        assertEquals(10, count);
+        assertEquals(0, store.count("type 1", 1, 2));
+        assertEquals(5, store.count("type 1", 2, 3));
+    }
+
+    @Test
+    public void givenDuplicatesInsertedWhileIterating_thenEventsAlreadyReturnedAreNotRepeated() {
+        store.insert(new Event("type 1", 1));
+        store.insert(new Event("type 1", 1));
+        store.insert(new Event("type 1", 2));
+
+        EventIterator eventIterator = store.query("type 1", 0, 10);
+        assertTrue(eventIterator.moveNext());
+        assertTrue(eventIterator.moveNext());
+        assertEquals(1, eventIterator.current().timestamp());
+        store.insert(new Event("type 1", 0));
+        store.insert(new Event("type 1", 1));
+
+        List<Long> rest = new ArrayList<>();
+        while (eventIterator.moveNext()) {
+            rest.add(eventIterator.current().timestamp());
+        }
+        assertEquals(Arrays.asList(1L, 2L), rest);
+    }
+
+    @Test
+    public void givenPayload_thenQueryReturnsIt() {
+        Payload payload = Payload.of("sensor 1", 21.5, "celsius", "room 2");
+        if (store instanceof EventStoreMapped) {
+            /* it keeps no payloads, so it refuses them instead of dropping them */
+            try {
+                store.insert(new Event("type 1", 1, payload));
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertNotNull(e.getMessage());
+            }
+            assertEquals(0, store.count("type 1", 0, 10));
+            return;
+        }
+        store.insert(new Event("type 1", 1, payload));
+        store.insert(new Event("type 1", 2));
+
+        EventIterator eventIterator = store.query("type 1", 1, 10);
+        assertTrue(eventIterator.moveNext());
+        assertEquals(payload, eventIterator.current().payload());
+        assertTrue(eventIterator.moveNext());
+        assertSame(Payload.EMPTY, eventIterator.current().payload());
+    }
+
+    @Test
+    public void givenQueryAsync_thenListenerGetsEventsInOrder() throws Exception {
+        IntStream.of(5, 1, 3, 7).forEach(timestamp -> store.insert(new Event("type 1", timestamp)));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        List<Long> received = new ArrayList<>();
+        long delivered = store.queryAsync("type 1", 2, 7, event -> received.add(event.timestamp()), executorService)
+                .get(10, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        assertEquals(2, delivered);
+        assertEquals(Arrays.asList(3L, 5L), received);
+    }
+}
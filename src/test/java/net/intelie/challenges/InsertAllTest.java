@@ -0,0 +1,97 @@
+package net.intelie.challenges;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class InsertAllTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return StoreFactories.all();
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<EventStore> factory;
+
+    private EventStore store;
+
+    @Before
+    public void init() {
+        store = factory.get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StoreFactories.close(store);
+    }
+
+    private List<Long> read(String type) {
+        List<Long> timestamps = new ArrayList<>();
+        EventIterator eventIterator = store.query(type, 0, Long.MAX_VALUE);
+        while (eventIterator.moveNext()) {
+            Event event = eventIterator.current();
+            assertEquals(type, event.type());
+            timestamps.add(event.timestamp());
+        }
+        return timestamps;
+    }
+
+    @Test
+    public void givenStoredEvents_thenBatchIsMerged() {
+        store.insert(new Event("type 1", 2));
+        store.insert(new Event("type 1", 4));
+        store.insert(new Event("type 1", 6));
+
+        store.insertAll(Arrays.asList(
+                new Event("type 1", 7),
+                new Event("type 2", 3),
+                new Event("type 1", 1),
+                new Event("type 1", 4),
+                new Event("type 2", 1),
+                new Event("type 1", 5)));
+
+        assertEquals(Arrays.asList(1L, 2L, 4L, 4L, 5L, 6L, 7L), read("type 1"));
+        assertEquals(Arrays.asList(1L, 3L), read("type 2"));
+    }
+
+    @Test
+    public void givenLargeBatch_thenAllEventsAreSorted() {
+        Random random = new Random(42);
+        List<Event> batch = new ArrayList<>();
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            long timestamp = random.nextInt(10000);
+            store.insert(new Event("type 1", timestamp));
+            expected.add(timestamp);
+
+            timestamp = random.nextInt(10000);
+            batch.add(new Event("type 1", timestamp));
+            expected.add(timestamp);
+        }
+
+        store.insertAll(batch);
+
+        expected.sort(Long::compare);
+        assertEquals(expected, read("type 1"));
+    }
+
+    @Test
+    public void givenEmptyBatch_thenNothingChanges() {
+        store.insert(new Event("type 1", 1));
+        store.insertAll(Collections.<Event>emptyList());
+
+        assertEquals(Arrays.asList(1L), read("type 1"));
+    }
+}
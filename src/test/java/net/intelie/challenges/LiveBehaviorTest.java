@@ -1,18 +1,36 @@
 package net.intelie.challenges;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.concurrent.*;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertEquals;
 
+@RunWith(Parameterized.class)
 public class LiveBehaviorTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return StoreFactories.all();
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<EventStore> factory;
+
     private EventStore store;
 
     private void insertType1Events() {
@@ -28,7 +46,12 @@ public class LiveBehaviorTest {
 
     @Before
     public void init() {
-        store = new EventStoreSynch();
+        store = factory.get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StoreFactories.close(store);
     }
 
     private Runnable createProducer(CountDownLatch positioned, CountDownLatch modified, long... timestamps) {
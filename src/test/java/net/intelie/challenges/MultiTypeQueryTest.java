@@ -0,0 +1,122 @@
+package net.intelie.challenges;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+@RunWith(Parameterized.class)
+public class MultiTypeQueryTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return StoreFactories.all();
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<EventStore> factory;
+
+    private EventStore store;
+
+    @Before
+    public void init() {
+        store = factory.get();
+        for (int i = 0; i < 300; i++) {
+            store.insert(new Event("sensor.temperature", i * 3));
+            store.insert(new Event("sensor.pressure", i * 3 + 1));
+            store.insert(new Event("valve.position", i * 3 + 2));
+            if (i % 2 == 0) {
+                store.insert(new Event("sensor.flow", i * 3));
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StoreFactories.close(store);
+    }
+
+    private static List<String> read(EventIterator eventIterator) {
+        List<String> read = new ArrayList<>();
+        while (eventIterator.moveNext()) {
+            read.add(eventIterator.current().timestamp() + " " + eventIterator.current().type());
+        }
+        return read;
+    }
+
+    @Test
+    public void givenSeveralTypes_thenEventsAreMergedInTimestampOrder() {
+        List<String> read = read(store.query(Arrays.asList("valve.position", "sensor.pressure"), 10, 20));
+
+        assertEquals(Arrays.asList("10 sensor.pressure", "11 valve.position", "13 sensor.pressure",
+                "14 valve.position", "16 sensor.pressure", "17 valve.position", "19 sensor.pressure"), read);
+    }
+
+    @Test
+    public void givenSameTimestamps_thenTypesComeInTheOrderGiven() {
+        List<String> read = read(store.query(Arrays.asList("sensor.flow", "sensor.temperature", "sensor.flow"), 0, 7));
+
+        assertEquals(Arrays.asList("0 sensor.flow", "0 sensor.temperature", "3 sensor.temperature",
+                "6 sensor.flow", "6 sensor.temperature"), read);
+    }
+
+    @Test
+    public void givenMissingTypes_thenTheyAreEmpty() {
+        assertTrue(read(store.query(Collections.emptyList(), 0, 10)).isEmpty());
+        assertEquals(Arrays.asList("1 sensor.pressure"),
+                read(store.query(Arrays.asList("missing", "sensor.pressure"), 0, 3)));
+    }
+
+    @Test
+    public void givenRemove_thenItRemovesFromTheRightType() {
+        EventIterator eventIterator = store.query(Arrays.asList("sensor.temperature", "sensor.pressure"), 0, 900);
+        while (eventIterator.moveNext()) {
+            if (eventIterator.current().type().equals("sensor.pressure")) {
+                eventIterator.remove();
+            }
+        }
+
+        assertEquals(0, store.count("sensor.pressure", 0, 900));
+        assertEquals(300, store.count("sensor.temperature", 0, 900));
+    }
+
+    @Test
+    public void givenGlob_thenMatchingTypesAreMerged() {
+        if (!(store instanceof EventStoreSynch)) {
+            return;
+        }
+        EventStoreSynch synch = (EventStoreSynch) store;
+
+        assertEquals(read(store.query(Arrays.asList("sensor.flow", "sensor.pressure", "sensor.temperature"), 0, 10)),
+                read(synch.queryMatching("sensor.*", 0, 10)));
+        assertEquals(read(store.query(Arrays.asList("sensor.flow"), 0, 10)),
+                read(synch.queryMatching("*.flow", 0, 10)));
+        assertEquals(read(store.query(Arrays.asList("sensor.pressure", "sensor.temperature"), 0, 10)),
+                read(synch.queryMatching("sensor.???????*e", 0, 10)));
+        assertEquals(read(store.query("valve.position", 0, 10)), read(synch.queryMatching("valve.position", 0, 10)));
+        assertTrue(read(synch.queryMatching("sensor", 0, 10)).isEmpty());
+        assertTrue(read(synch.queryMatching("sensor.(.*)", 0, 10)).isEmpty());
+
+        store.removeAll("sensor.flow");
+        assertEquals(read(store.query(Arrays.asList("sensor.pressure", "sensor.temperature"), 0, 10)),
+                read(synch.queryMatching("sensor.*", 0, 10)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongRange() {
+        store.query(Arrays.asList("sensor.flow"), 10, 10);
+    }
+}
@@ -0,0 +1,109 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PayloadTest {
+
+    private static Payload roundTrip(Payload payload, boolean dictionary) {
+        PayloadArena arena = new PayloadArena(dictionary);
+        arena.append(Payload.of("other", 1, "x"));
+        int offset = arena.append(payload);
+        return arena.get(offset);
+    }
+
+    @Test
+    public void givenPayloads_thenTheyAreDecodedBack() {
+        for (Payload payload : Arrays.asList(
+                Payload.of("sensor 1", 21.5, "celsius", "room 2"),
+                Payload.of(null, 42),
+                Payload.of(null, -1L << 40),
+                Payload.of("ação", Double.NaN),
+                Payload.of(null, -0.0),
+                Payload.of(null, Double.MAX_VALUE, "", "tag"),
+                Payload.of("source", 0))) {
+            assertEquals(payload, roundTrip(payload, true));
+            assertEquals(payload, roundTrip(payload, false));
+        }
+    }
+
+    @Test
+    public void givenEmptyPayload_thenNothingIsWritten() {
+        PayloadArena arena = new PayloadArena(true);
+        assertEquals(PayloadCodec.NO_PAYLOAD, arena.append(new Payload(null, 0, Collections.emptyList())));
+        assertEquals(0, arena.size());
+        assertSame(Payload.EMPTY, arena.get(PayloadCodec.NO_PAYLOAD));
+        assertSame(Payload.EMPTY, new Event("type 1", 1, null).payload());
+    }
+
+    @Test
+    public void givenWholeValueAndRepeatedStrings_thenEncodingIsCompact() {
+        PayloadArena arena = new PayloadArena(true);
+        arena.append(Payload.of("sensor 1", 3, "celsius"));
+        int offset = arena.size();
+        arena.append(Payload.of("sensor 1", 3, "celsius"));
+        /* flags, source id, value, tag count, tag id */
+        assertEquals(5, arena.size() - offset);
+    }
+
+    @Test
+    public void givenCompaction_thenDictionaryKeepsOnlyLiveStrings() {
+        PayloadArena arena = new PayloadArena(true);
+        int[] offsets = new int[1000];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = arena.append(Payload.of("source " + i, i, "tag"));
+        }
+        assertEquals(1001, arena.stringCount());
+
+        for (int i = 0; i < 900; i++) {
+            arena.release(offsets[i]);
+            offsets[i] = PayloadCodec.NO_PAYLOAD;
+        }
+        arena.compact(offsets, offsets.length);
+
+        assertEquals(101, arena.stringCount());
+        for (int i = 900; i < offsets.length; i++) {
+            assertEquals(Payload.of("source " + i, i, "tag"), arena.get(offsets[i]));
+        }
+    }
+
+    @Test
+    public void givenRemovals_thenColumnarArenaIsCompacted() {
+        ColumnarEvents events = new ColumnarEvents("type 1");
+        for (int i = 0; i < 1000; i++) {
+            events.insert(i, Payload.of("source " + i % 10, i + 0.5, "tag"));
+        }
+        int full = events.payloadSize();
+
+        for (int i = 0; i < 900; i++) {
+            events.remove(0);
+        }
+
+        assertTrue(events.payloadSize() < full / 2);
+        for (int i = 0; i < events.size(); i++) {
+            Payload payload = PayloadCodec.decode(events.payloadBytes(), events.payload(i), events.payloadStrings());
+            assertEquals(Payload.of("source " + (900 + i) % 10, 900 + i + 0.5, "tag"), payload);
+        }
+    }
+
+    @Test
+    public void givenCompactionAfterMoveNext_thenCurrentDecodesTheOldBytes() {
+        EventStoreColumnar store = new EventStoreColumnar();
+        for (int i = 0; i < 1000; i++) {
+            store.insert(new Event("type 1", i, Payload.of("source", i + 0.5)));
+        }
+
+        EventIterator reader = store.query("type 1", 999, 1000);
+        assertTrue(reader.moveNext());
+        EventIterator remover = store.query("type 1", 0, 999);
+        while (remover.moveNext()) {
+            remover.remove();
+        }
+
+        assertEquals(Payload.of("source", 999.5), reader.current().payload());
+    }
+}
@@ -0,0 +1,125 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class RetentionTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private static long count(EventStore store, String type) {
+        return store.count(type, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Segments of 4 events, evicted only when the tests ask.
+     */
+    private EventStoreSegmented store(RetentionPolicy retention) {
+        return new EventStoreSegmented(4, 0.25, retention.withClock(clock::get).withEvictionPeriod(60_000));
+    }
+
+    private static void insert(EventStore store, String type, int events) {
+        for (int i = 0; i < events; i++) {
+            store.insert(new Event(type, i));
+        }
+    }
+
+    @Test
+    public void givenMaxAge_thenExpiredSegmentsAreEvicted() {
+        EventStoreSegmented store = store(RetentionPolicy.unlimited().withMaxAge(100));
+        insert(store, "type 1", 1000);
+
+        clock.set(600);
+        store.evict();
+
+        assertEquals(0, store.count("type 1", 0, 500));
+        assertEquals(500, store.count("type 1", 500, 1000));
+        assertEquals(500, store.retentionMetrics().evictedEvents());
+        assertEquals(125, store.retentionMetrics().evictedSegments());
+        assertTrue(store.retentionMetrics().reclaimedBytes() > 0);
+
+        clock.set(2000);
+        store.evict();
+        assertEquals(0, count(store, "type 1"));
+
+        store.insert(new Event("type 1", 1950));
+        assertEquals(1, count(store, "type 1"));
+    }
+
+    @Test
+    public void givenPartiallyExpiredSegment_thenItIsKept() {
+        EventStoreSegmented store = store(RetentionPolicy.unlimited().withMaxAge(100));
+        insert(store, "type 1", 8);
+
+        clock.set(102);
+        store.evict();
+
+        assertEquals(8, count(store, "type 1"));
+        assertEquals(0, store.retentionMetrics().evictedSegments());
+    }
+
+    @Test
+    public void givenMaxAgePerType_thenOtherTypesUseTheDefault() {
+        EventStoreSegmented store = store(RetentionPolicy.unlimited().withMaxAge("type 2", 100));
+        insert(store, "type 1", 1000);
+        insert(store, "type 2", 1000);
+
+        clock.set(600);
+        store.evict();
+
+        assertEquals(1000, count(store, "type 1"));
+        assertEquals(500, count(store, "type 2"));
+    }
+
+    @Test
+    public void givenMaxEvents_thenOldestSegmentsOfAllTypesAreEvicted() {
+        EventStoreSegmented store = store(RetentionPolicy.unlimited().withMaxEvents(1000));
+        insert(store, "type 1", 1000);
+        for (int i = 0; i < 1000; i++) {
+            store.insert(new Event("type 2", 500 + i));
+        }
+
+        store.evict();
+
+        assertEquals(1000, count(store, "type 1") + count(store, "type 2"));
+        assertEquals(0, store.count("type 1", 0, 744));
+        assertEquals(0, store.count("type 2", 0, 744));
+        assertEquals(1000, store.retentionMetrics().evictedEvents());
+    }
+
+    @Test
+    public void givenMaxBytes_thenStoreShrinks() {
+        EventStoreSegmented store = store(RetentionPolicy.unlimited().withMaxBytes(10_000));
+        insert(store, "type 1", 10_000);
+
+        store.evict();
+
+        long kept = count(store, "type 1");
+        assertTrue(kept > 0);
+        assertTrue(kept < 10_000);
+        assertEquals(10_000, kept + store.retentionMetrics().evictedEvents());
+        assertEquals(kept, store.count("type 1", 10_000 - kept, 10_000));
+    }
+
+    @Test
+    public void givenBackgroundEvictor_thenExpiredEventsGoAway() throws Exception {
+        EventStoreSegmented store = new EventStoreSegmented(4, 0.25,
+                RetentionPolicy.unlimited().withMaxAge(100).withClock(clock::get).withEvictionPeriod(10));
+        insert(store, "type 1", 1000);
+        clock.set(2000);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count(store, "type 1") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, count(store, "type 1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongLimit() {
+        RetentionPolicy.unlimited().withMaxEvents(0);
+    }
+}
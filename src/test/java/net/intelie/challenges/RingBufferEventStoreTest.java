@@ -0,0 +1,146 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RingBufferEventStoreTest {
+
+    private static long count(EventStore store, String type) {
+        return store.count(type, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void givenManyWriters_thenFlushAppliesEveryInsert() throws Exception {
+        for (RingBufferEventStore.WaitStrategy waitStrategy : RingBufferEventStore.WaitStrategy.values()) {
+            EventStoreSynch store = new EventStoreSynch();
+            try (RingBufferEventStore ring = new RingBufferEventStore(store, 16, waitStrategy, false)) {
+                ExecutorService executorService = Executors.newFixedThreadPool(4);
+                for (int t = 0; t < 4; t++) {
+                    int writer = t;
+                    executorService.execute(() -> {
+                        for (int i = 0; i < 1000; i++) {
+                            ring.insert(new Event("type " + writer, i));
+                        }
+                    });
+                }
+                executorService.shutdown();
+                assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+                ring.flush();
+                for (int t = 0; t < 4; t++) {
+                    assertEquals(waitStrategy.name(), 1000, count(store, "type " + t));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void givenBatchLargerThanTheRing_thenAllOfItIsApplied() throws Exception {
+        try (RingBufferEventStore ring = new RingBufferEventStore(new EventStoreSynch(), 8,
+                RingBufferEventStore.WaitStrategy.PARK, true)) {
+            List<Event> batch = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                batch.add(new Event("type 1", 100 - i));
+            }
+            ring.insertAll(batch);
+
+            assertEquals(100, count(ring, "type 1"));
+        }
+    }
+
+    @Test
+    public void givenRemoveAll_thenEarlierInsertsAreRemoved() throws Exception {
+        EventStoreSynch store = new EventStoreSynch();
+        try (RingBufferEventStore ring = new RingBufferEventStore(store, 8,
+                RingBufferEventStore.WaitStrategy.PARK, false)) {
+            for (int i = 0; i < 100; i++) {
+                ring.insert(new Event("type 1", i));
+            }
+            ring.removeAll("type 1");
+            ring.insert(new Event("type 1", 100));
+            ring.flush();
+
+            assertEquals(1, count(store, "type 1"));
+        }
+    }
+
+    @Test
+    public void givenClose_thenPendingEventsAreApplied() {
+        EventStoreSynch store = new EventStoreSynch();
+        RingBufferEventStore ring = new RingBufferEventStore(store, 1024, RingBufferEventStore.WaitStrategy.PARK, false);
+        for (int i = 0; i < 1000; i++) {
+            ring.insert(new Event("type 1", i));
+        }
+        ring.close();
+
+        assertEquals(1000, count(store, "type 1"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void givenClosed_thenInsertFails() {
+        RingBufferEventStore ring = new RingBufferEventStore(new EventStoreSynch());
+        ring.close();
+        ring.insert(new Event("type 1", 1));
+    }
+
+    @Test
+    public void givenStoreFails_thenFlushReportsIt() throws Exception {
+        EventStore failing = new EventStoreSynch() {
+            @Override
+            public void insertAll(Collection<Event> events) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        try (RingBufferEventStore ring = new RingBufferEventStore(failing)) {
+            ring.insert(new Event("type 1", 1));
+            try {
+                ring.flush();
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(e.getCause() instanceof UnsupportedOperationException);
+            }
+            ring.flush();
+        }
+    }
+
+    @Test
+    public void givenStoreThrowsError_thenInsertsAndFlushesFailInsteadOfWaiting() throws Exception {
+        EventStore failing = new EventStoreSynch() {
+            @Override
+            public void insertAll(Collection<Event> events) {
+                throw new OutOfMemoryError();
+            }
+        };
+        try (RingBufferEventStore ring = new RingBufferEventStore(failing, 2,
+                RingBufferEventStore.WaitStrategy.PARK, false)) {
+            try {
+                /* far more than the ring holds, waiting for room would never return */
+                for (int i = 0; i < 100; i++) {
+                    ring.insert(new Event("type 1", i));
+                }
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(e.getCause() instanceof OutOfMemoryError);
+            }
+            try {
+                ring.flush();
+                fail();
+            } catch (IllegalStateException e) {
+                assertTrue(e.getCause() instanceof OutOfMemoryError);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongCapacity() {
+        new RingBufferEventStore(new EventStoreSynch(), 1000, RingBufferEventStore.WaitStrategy.PARK, true);
+    }
+}
@@ -0,0 +1,81 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ShardedEventStoreTest {
+
+    private static List<Long> read(EventIterator eventIterator) {
+        List<Long> read = new ArrayList<>();
+        while (eventIterator.moveNext()) {
+            read.add(eventIterator.current().timestamp());
+        }
+        return read;
+    }
+
+    private static ShardedEventStore byTime() {
+        return new ShardedEventStore(3, EventStoreSynch::new, ShardedEventStore.Partitioning.TIME_RANGE, 7);
+    }
+
+    @Test
+    public void givenTimeRanges_thenWindowsAreMergedFromTheirShards() {
+        ShardedEventStore store = byTime();
+        EventStoreSynch expected = new EventStoreSynch();
+        List<Event> batch = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            Event event = new Event("type 1", random.nextInt(1000) * 1000 + i);
+            batch.add(event);
+            expected.insert(event);
+        }
+        store.insertAll(batch);
+
+        for (long start = -10; start < 1_000_000; start += 9973) {
+            for (long width : new long[]{1, 7, 20, 10_000}) {
+                assertEquals(read(expected.query("type 1", start, start + width)),
+                        read(store.query("type 1", start, start + width)));
+                assertEquals(expected.count("type 1", start, start + width), store.count("type 1", start, start + width));
+            }
+        }
+        assertEquals(500, store.count("type 1", Long.MIN_VALUE, Long.MAX_VALUE));
+        assertArrayEquals(expected.histogram("type 1", 0, 1_000_000, 100_000),
+                store.histogram("type 1", 0, 1_000_000, 100_000));
+    }
+
+    @Test
+    public void givenTimeRanges_thenRemoveAllReachesEveryShard() {
+        ShardedEventStore store = byTime();
+        for (int i = 0; i < 100; i++) {
+            store.insert(new Event("type 1", i));
+            store.insert(new Event("type 2", i));
+        }
+
+        store.removeAll("type 1");
+
+        assertEquals(0, store.count("type 1", 0, 100));
+        assertEquals(100, store.count("type 2", 0, 100));
+    }
+
+    @Test
+    public void givenTypeHash_thenTypesAreSpreadAndFound() {
+        ShardedEventStore store = new ShardedEventStore(8, EventStoreSynch::new);
+        for (int type = 0; type < 64; type++) {
+            store.insert(new Event("type " + type, type));
+        }
+
+        assertEquals(ShardedEventStore.Partitioning.TYPE_HASH, store.partitioning());
+        for (int type = 0; type < 64; type++) {
+            assertEquals(1, store.count("type " + type, 0, 64));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongShardCount() {
+        new ShardedEventStore(0, EventStoreSynch::new);
+    }
+}
@@ -0,0 +1,85 @@
+package net.intelie.challenges;
+
+import net.intelie.challenges.exploration.EventStoreOptimistic;
+import net.intelie.challenges.exploration.EventStoreRW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Implementations the behavior suites run against, as {@link org.junit.runners.Parameterized} parameters.
+ */
+final class StoreFactories {
+
+    private StoreFactories() {
+    }
+
+    static Collection<Object[]> all() {
+        List<Object[]> stores = new ArrayList<>();
+        add(stores, "synch", EventStoreSynch::new);
+        add(stores, "locked", EventStoreLocked::new);
+        add(stores, "rw", EventStoreRW::new);
+        add(stores, "rw unfair", () -> new EventStoreRW(false));
+        add(stores, "optimistic", EventStoreOptimistic::new);
+        add(stores, "segmented", EventStoreSegmented::new);
+        add(stores, "segmented small", () -> new EventStoreSegmented(2));
+        add(stores, "skip list", EventStoreSkipList::new);
+        add(stores, "columnar", EventStoreColumnar::new);
+        add(stores, "mapped", () -> mapped(temporaryDirectory()));
+        add(stores, "sharded by type", () -> new ShardedEventStore(4, EventStoreSynch::new));
+        add(stores, "sharded by time", () -> new ShardedEventStore(4, EventStoreSynch::new,
+                ShardedEventStore.Partitioning.TIME_RANGE, 10));
+        add(stores, "durable", () -> durable(new EventStoreSynch(), temporaryDirectory().resolve("events.log")));
+        add(stores, "ring buffer", () -> new RingBufferEventStore(new EventStoreSynch(), 8,
+                RingBufferEventStore.WaitStrategy.PARK, true));
+        return stores;
+    }
+
+    /**
+     * A new directory under {@code target}, so it goes away on {@code mvn clean}.
+     */
+    static Path temporaryDirectory() {
+        try {
+            return Files.createTempDirectory(Files.createDirectories(Paths.get("target", "stores")), "store");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static EventStoreMapped mapped(Path directory) {
+        try {
+            return new EventStoreMapped(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static DurableEventStore durable(EventStore store, Path log) {
+        try {
+            return new DurableEventStore(store, log);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Releases the threads, mappings and files held by the store, if any.
+     */
+    static void close(EventStore store) throws IOException {
+        if (store instanceof Closeable) {
+            ((Closeable) store).close();
+        }
+    }
+
+    private static void add(List<Object[]> stores, String name, Supplier<EventStore> factory) {
+        stores.add(new Object[]{name, factory});
+    }
+}
@@ -0,0 +1,188 @@
+package net.intelie.challenges;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(Parameterized.class)
+public class StreamTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return StoreFactories.all();
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<EventStore> factory;
+
+    private EventStore store;
+
+    @Before
+    public void init() {
+        store = factory.get();
+        store.insertAll(IntStream
+                .range(0, 10000)
+                .map(i -> (i * 7919) % 10000)
+                .mapToObj(timestamp -> new Event("type 1", timestamp))
+                .collect(Collectors.toList()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StoreFactories.close(store);
+    }
+
+    @Test
+    public void givenRange_thenStreamIsSortedAndBounded() {
+        try (Stream<Event> stream = store.stream("type 1", 100, 200)) {
+            List<Long> timestamps = stream.map(Event::timestamp).collect(Collectors.toList());
+            assertEquals(100, timestamps.size());
+            for (int i = 0; i < timestamps.size(); i++) {
+                assertEquals(100 + i, timestamps.get(i).longValue());
+            }
+        }
+    }
+
+    @Test
+    public void givenParallelStream_thenSameResultAsSequential() {
+        long sequential;
+        try (Stream<Event> stream = store.stream("type 1", 0, 10000)) {
+            sequential = stream.mapToLong(Event::timestamp).sum();
+        }
+        try (Stream<Event> stream = store.stream("type 1", 0, 10000)) {
+            assertEquals(sequential, stream.parallel().mapToLong(Event::timestamp).sum());
+        }
+        try (Stream<Event> stream = store.stream("type 1", 0, 10000)) {
+            assertEquals(10000, stream.parallel().count());
+        }
+    }
+
+    @Test
+    public void givenRangeLargerThanAChunk_thenEveryEventIsReadOnce() {
+        store.insert(new Event("type 1", 5000));
+        try (Stream<Event> stream = store.stream("type 1", 0, 10000)) {
+            List<Long> timestamps = stream.map(Event::timestamp).collect(Collectors.toList());
+            assertEquals(10001, timestamps.size());
+            for (int i = 1; i < timestamps.size(); i++) {
+                assertTrue(timestamps.get(i - 1) <= timestamps.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void givenSynchStoreChangedWhileStreaming_thenEventsAlreadyReadAreNotRepeated() {
+        assumeTrue(store instanceof EventStoreSynch);
+
+        List<Long> timestamps = new ArrayList<>();
+        try (Stream<Event> stream = store.stream("type 1", 0, 10000)) {
+            stream.forEach(event -> {
+                if (event.timestamp() == 1500) {
+                    /* shifts the events of the next chunks */
+                    store.insert(new Event("type 1", 10));
+                    store.insert(new Event("type 1", 20));
+                }
+                timestamps.add(event.timestamp());
+            });
+        }
+        assertEquals(10000, timestamps.size());
+        for (int i = 0; i < timestamps.size(); i++) {
+            assertEquals(i, timestamps.get(i).longValue());
+        }
+    }
+
+    @Test
+    public void givenUnknownType_thenStreamIsEmpty() {
+        try (Stream<Event> stream = store.stream("none", 0, 10)) {
+            assertEquals(0, stream.count());
+        }
+    }
+
+    @Test
+    public void spliteratorIsSorted() {
+        try (Stream<Event> stream = store.stream("type 1", 0, 10)) {
+            Spliterator<Event> spliterator = stream.spliterator();
+            assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+            assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED));
+        }
+    }
+
+    @Test
+    public void givenSynchStore_thenSpliteratorSplitsInHalves() {
+        assumeTrue(store instanceof EventStoreSynch);
+
+        try (Stream<Event> stream = store.stream("type 1", 0, 10)) {
+            Spliterator<Event> spliterator = stream.spliterator();
+            assertEquals(10, spliterator.estimateSize());
+
+            Spliterator<Event> prefix = spliterator.trySplit();
+            assertEquals(5, prefix.estimateSize());
+            assertEquals(5, spliterator.estimateSize());
+        }
+    }
+
+    @Test
+    public void closingStreamClosesIterator() {
+        AtomicBoolean closed = new AtomicBoolean();
+        EventStore closeable = new EventStore() {
+            @Override
+            public void insert(Event event) {
+                store.insert(event);
+            }
+
+            @Override
+            public void removeAll(String type) {
+                store.removeAll(type);
+            }
+
+            @Override
+            public EventIterator query(String type, long startTime, long endTime) {
+                EventIterator eventIterator = store.query(type, startTime, endTime);
+                return new EventIterator() {
+                    @Override
+                    public boolean moveNext() {
+                        return eventIterator.moveNext();
+                    }
+
+                    @Override
+                    public Event current() {
+                        return eventIterator.current();
+                    }
+
+                    @Override
+                    public void remove() {
+                        eventIterator.remove();
+                    }
+
+                    @Override
+                    public void close() throws Exception {
+                        closed.set(true);
+                        eventIterator.close();
+                    }
+                };
+            }
+        };
+
+        try (Stream<Event> stream = closeable.stream("type 1", 0, 10)) {
+            assertEquals(10, stream.count());
+        }
+        assertTrue(closed.get());
+    }
+}
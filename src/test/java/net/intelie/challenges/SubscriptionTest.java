@@ -0,0 +1,158 @@
+package net.intelie.challenges;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SubscriptionTest {
+
+    private EventStoreSynch store;
+    private final BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+
+    @Before
+    public void init() {
+        store = new EventStoreSynch();
+    }
+
+    private List<Long> receive(int count) throws InterruptedException {
+        List<Long> timestamps = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Long timestamp = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull("missing event", timestamp);
+            timestamps.add(timestamp);
+        }
+        return timestamps;
+    }
+
+    private Thread insertInBackground(long... timestamps) {
+        Thread writer = new Thread(() -> {
+            for (long timestamp : timestamps) {
+                store.insert(new Event("type 1", timestamp));
+            }
+        });
+        writer.start();
+        return writer;
+    }
+
+    @Test
+    public void givenBacklogAndLateEvents_thenAllAreDelivered() throws Exception {
+        store.insert(new Event("type 1", 5));
+        store.insert(new Event("type 1", 1));
+        store.insert(new Event("type 1", 3));
+        store.insert(new Event("type 1", 100));
+
+        try (Subscription subscription = store.subscribe("type 1", 0, 100, event -> received.add(event.timestamp()))) {
+            assertEquals(Arrays.asList(1L, 3L, 5L), receive(3));
+
+            store.insert(new Event("type 1", 10));
+            store.insert(new Event("type 1", 2));
+            store.insert(new Event("type 1", 200));
+            store.insert(new Event("type 2", 4));
+            store.insertAll(Arrays.asList(new Event("type 1", 0), new Event("type 1", 99)));
+
+            assertEquals(Arrays.asList(10L, 2L, 0L, 99L), receive(4));
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+            assertFalse(subscription.isClosed());
+        }
+    }
+
+    @Test
+    public void givenRemoveAll_thenLaterInsertsAreDelivered() throws Exception {
+        store.insert(new Event("type 1", 1));
+        Subscription subscription = store.subscribe("type 1", 0, 10, event -> received.add(event.timestamp()));
+        try {
+            assertEquals(Arrays.asList(1L), receive(1));
+
+            store.removeAll("type 1");
+            store.insert(new Event("type 1", 2));
+
+            assertEquals(Arrays.asList(2L), receive(1));
+        }
+        finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    public void givenSlowListener_thenWritersWait() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Subscription subscription = store.subscribe("type 1", 0, 10, event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event.timestamp());
+        }, 1);
+        try {
+            Thread writer = insertInBackground(1, 2, 3);
+            writer.join(200);
+            assertTrue("writer should wait for the listener", writer.isAlive());
+
+            release.countDown();
+            writer.join(5000);
+            assertFalse(writer.isAlive());
+            assertEquals(Arrays.asList(1L, 2L, 3L), receive(3));
+        }
+        finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    public void givenClose_thenWaitingWritersAreReleased() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        Subscription subscription = store.subscribe("type 1", 0, 10, event -> {
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1);
+
+        Thread writer = insertInBackground(1, 2, 3);
+        writer.join(200);
+        assertTrue(writer.isAlive());
+
+        subscription.close();
+        writer.join(5000);
+        assertFalse(writer.isAlive());
+        assertTrue(subscription.isClosed());
+        assertEquals(3, store.count("type 1", 0, 10));
+    }
+
+    @Test
+    public void givenFailingListener_thenSubscriptionIsClosed() throws Exception {
+        Subscription subscription = store.subscribe("type 1", 0, 10, event -> {
+            throw new IllegalStateException("expected by the test");
+        });
+        store.insert(new Event("type 1", 1));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!subscription.isClosed() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(subscription.isClosed());
+        assertTrue(subscription.failure() instanceof IllegalStateException);
+
+        /* no one is listening anymore, inserts must not wait */
+        for (int i = 0; i < 10; i++) {
+            store.insert(new Event("type 1", i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongRange() {
+        store.subscribe("type 1", 10, 0, event -> {
+        });
+    }
+}
@@ -2,13 +2,23 @@ package net.intelie.challenges;
 
 import net.intelie.challenges.exploration.EventStoreOptimistic;
 import net.intelie.challenges.exploration.EventStoreRW;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.*;
@@ -16,12 +26,29 @@ import static org.junit.Assert.*;
 /**
  * Non-deterministic tests only to provide some evidence of thread safety.
  */
+@RunWith(Parameterized.class)
 public class ThreadSafetyTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> stores() {
+        return StoreFactories.all();
+    }
+
+    @Parameterized.Parameter(0)
+    public String name;
+
+    @Parameterized.Parameter(1)
+    public Supplier<EventStore> factory;
+
     private EventStore store;
 
     @Before
     public void init() {
-        store = new EventStoreSynch();
+        store = factory.get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        StoreFactories.close(store);
     }
 
     @Test
@@ -98,4 +125,134 @@ public class ThreadSafetyTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenManyTypes_thenNoInsertIsLost() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(10);
+
+        IntStream
+                .range(0, 10)
+                .forEach(t -> executorService.execute(() -> IntStream
+                        .range(0, 1000)
+                        .forEach(timestamp -> store.insert(new Event("type " + t % 5, timestamp)))));
+
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        for (int t = 0; t < 5; t++) {
+            EventIterator eventIterator = store.query("type " + t, 0, 1000);
+            int count = 0;
+            while (eventIterator.moveNext()) {
+                count++;
+            }
+            assertEquals(2000, count);
+        }
+    }
+
+    @Test
+    public void givenRemoveAll_thenLaterInsertsAreKept() throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        CountDownLatch removed = new CountDownLatch(1);
+
+        IntStream
+                .range(0, 100)
+                .forEach(timestamp -> store.insert(new Event("type 1", timestamp)));
+
+        executorService.execute(() -> {
+            store.removeAll("type 1");
+            removed.countDown();
+        });
+        executorService.execute(() -> {
+            try {
+                removed.await();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            IntStream
+                    .range(100, 200)
+                    .forEach(timestamp -> store.insert(new Event("type 1", timestamp)));
+        });
+
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        EventIterator eventIterator = store.query("type 1", 0, 200);
+        int count = 0;
+        while (eventIterator.moveNext()) {
+            assertTrue(eventIterator.current().timestamp() >= 100);
+            count++;
+        }
+        assertEquals(100, count);
+    }
+
+    @Test
+    public void givenInsertsWhileIterating_thenEarlierEventsAreReadOnceInOrder() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        IntStream
+                .range(0, 2000)
+                .forEach(i -> store.insert(new Event("type 1", 2 * i)));
+
+        executorService.execute(() -> IntStream
+                .range(0, 2000)
+                .forEach(i -> store.insert(new Event("type 1", 2 * i + 1))));
+
+        Callable<Integer> reader = () -> {
+            int evens = 0;
+            long last = -1;
+            EventIterator eventIterator = store.query("type 1", 0, 4000);
+            while (eventIterator.moveNext()) {
+                long timestamp = eventIterator.current().timestamp();
+                assertTrue(timestamp > last);
+                last = timestamp;
+                if (timestamp % 2 == 0) {
+                    evens++;
+                }
+            }
+            return evens;
+        };
+        Future<Integer> first = executorService.submit(reader);
+        Future<Integer> second = executorService.submit(reader);
+
+        assertEquals(2000, (int) first.get(10, TimeUnit.SECONDS));
+        assertEquals(2000, (int) second.get(10, TimeUnit.SECONDS));
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void givenRemoveAllWhileInserting_thenNoInsertFails() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        AtomicBoolean inserting = new AtomicBoolean(true);
+
+        Future<?> remover = executorService.submit(() -> {
+            while (inserting.get()) {
+                store.removeAll("type 1");
+            }
+        });
+        List<Future<?>> inserters = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            inserters.add(executorService.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    store.insert(new Event("type 1", i));
+                    if (i % 100 == 0) {
+                        store.insertAll(Collections.singletonList(new Event("type 1", i)));
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> inserter : inserters) {
+                inserter.get(60, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            inserting.set(false);
+        }
+        remover.get(10, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        store.removeAll("type 1");
+        store.insert(new Event("type 1", 1));
+        assertEquals(1, store.count("type 1", 0, 2));
+    }
+}
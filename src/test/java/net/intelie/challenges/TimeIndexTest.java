@@ -0,0 +1,129 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TimeIndexTest {
+
+    private static List<String> read(EventIterator eventIterator) {
+        List<String> read = new ArrayList<>();
+        while (eventIterator.moveNext()) {
+            read.add(eventIterator.current().timestamp() + " " + eventIterator.current().type());
+        }
+        return read;
+    }
+
+    /**
+     * Types {@code 0} to {@code 9}, type {@code i} with events every 10 timestamps in {@code [i * 100, i * 100 + 200)}.
+     */
+    private static void populate(EventStore store) {
+        for (int type = 0; type < 10; type++) {
+            for (long timestamp = type * 100; timestamp < type * 100 + 200; timestamp += 10) {
+                store.insert(new Event("index " + type, timestamp + type));
+            }
+        }
+    }
+
+    @Test
+    public void givenTimeIndex_thenAllTypesQueryMatchesUnindexed() {
+        EventStoreSynch indexed = new EventStoreSynch(50, true);
+        EventStoreSynch unindexed = new EventStoreSynch(50);
+        populate(indexed);
+        populate(unindexed);
+
+        for (long start = -50; start < 1200; start += 37) {
+            List<String> expected = read(unindexed.queryAllTypes(start, start + 120));
+            assertEquals(expected, read(indexed.queryAllTypes(start, start + 120)));
+        }
+    }
+
+    @Test
+    public void givenRemovals_thenIndexForgetsTheTypes() {
+        EventStoreSynch store = new EventStoreSynch(50, true);
+        populate(store);
+        assertEquals(22, store.timeIndexSize());
+
+        EventIterator eventIterator = store.queryAllTypes(0, 500);
+        while (eventIterator.moveNext()) {
+            eventIterator.remove();
+        }
+        assertTrue(read(store.queryAllTypes(0, 500)).isEmpty());
+        assertEquals(12, store.timeIndexSize());
+
+        for (int type = 0; type < 10; type++) {
+            store.removeAll("index " + type);
+        }
+        assertEquals(0, store.timeIndexSize());
+        assertTrue(read(store.queryAllTypes(Long.MIN_VALUE, Long.MAX_VALUE)).isEmpty());
+        assertEquals(-1, new EventStoreSynch().timeIndexSize());
+    }
+
+    @Test
+    public void givenSubscribedType_thenRemoveAllKeepsIndexConsistent() throws Exception {
+        EventStoreSynch store = new EventStoreSynch(50, true);
+        populate(store);
+        Subscription subscription = store.subscribe("index 0", 0, 1000, event -> {});
+        try {
+            store.removeAll("index 0");
+            store.insert(new Event("index 0", 10));
+            assertEquals(1, read(store.queryAllTypes(0, 50)).size());
+        }
+        finally {
+            subscription.close();
+        }
+    }
+
+    @Test
+    public void givenConcurrentChanges_thenIndexHoldsTypesWithEvents() throws InterruptedException {
+        EventStoreSynch store = new EventStoreSynch(10, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int seed = thread;
+            executor.execute(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 2000; i++) {
+                    String type = "index " + random.nextInt(4);
+                    int operation = random.nextInt(20);
+                    if (operation == 0) {
+                        store.removeAll(type);
+                    }
+                    else if (operation < 5) {
+                        EventIterator eventIterator = store.query(type, random.nextInt(1000), 1000);
+                        if (eventIterator.moveNext()) {
+                            eventIterator.remove();
+                        }
+                    }
+                    else {
+                        store.insert(new Event(type, random.nextInt(1000)));
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int buckets = 0;
+        for (long bucket = 0; bucket < 1000; bucket += 10) {
+            boolean any = false;
+            for (int type = 0; type < 4; type++) {
+                any |= store.count("index " + type, bucket, bucket + 10) > 0;
+            }
+            buckets += any ? 1 : 0;
+        }
+        assertEquals(buckets, store.timeIndexSize());
+
+        int events = 0;
+        for (int type = 0; type < 4; type++) {
+            events += store.count("index " + type, 0, 1000);
+        }
+        assertEquals(events, read(store.queryAllTypes(0, 1000)).size());
+    }
+}
@@ -0,0 +1,103 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TypeDictionaryTest {
+
+    @Test
+    public void givenSameName_thenSameType() {
+        EventType type = TypeDictionary.intern("dictionary type 1");
+        assertSame(type, TypeDictionary.intern(new String("dictionary type 1")));
+        assertSame(type, TypeDictionary.lookup("dictionary type 1"));
+        assertSame(type, TypeDictionary.byId(type.id()));
+        assertEquals("dictionary type 1", type.name());
+    }
+
+    @Test
+    public void givenNewNames_thenIdsAreDense() {
+        EventType first = TypeDictionary.intern("dictionary type 2");
+        EventType second = TypeDictionary.intern("dictionary type 3");
+        assertEquals(first.id() + 1, second.id());
+        assertTrue(second.id() < TypeDictionary.size());
+    }
+
+    @Test
+    public void givenUnknownName_thenNothingIsRegistered() {
+        int size = TypeDictionary.size();
+        assertNull(TypeDictionary.lookup("dictionary unknown"));
+        assertNull(TypeDictionary.byId(-1));
+        assertNull(TypeDictionary.byId(size));
+
+        EventStoreSynch store = new EventStoreSynch();
+        assertFalse(store.query("dictionary unknown", 0, 10).moveNext());
+        store.removeAll("dictionary unknown");
+        assertEquals(size, TypeDictionary.size());
+    }
+
+    @Test
+    public void givenEvents_thenTheyShareTheType() {
+        Event event = new Event("dictionary type 4", 1);
+        Event other = new Event(new String("dictionary type 4"), 2);
+        assertSame(event.eventType(), other.eventType());
+        assertEquals(event.typeId(), other.typeId());
+        assertEquals("dictionary type 4", event.type());
+    }
+
+    @Test
+    public void givenTypeId_thenQueryIsTheSame() {
+        EventStoreSynch store = new EventStoreSynch();
+        EventType type = TypeDictionary.intern("dictionary type 5");
+        for (int i = 0; i < 10; i++) {
+            store.insert(new Event(type, i));
+        }
+        store.insert(new Event("dictionary type 6", 5));
+
+        EventIterator byName = store.query("dictionary type 5", 2, 8);
+        EventIterator byId = store.query(type.id(), 2, 8);
+        while (byName.moveNext()) {
+            assertTrue(byId.moveNext());
+            assertSame(byName.current(), byId.current());
+        }
+        assertFalse(byId.moveNext());
+    }
+
+    @Test
+    public void givenUnknownId_thenQueryIsEmpty() {
+        EventStoreSynch store = new EventStoreSynch();
+        assertFalse(store.query(-1, 0, 10).moveNext());
+        assertFalse(store.query(TypeDictionary.MAX_TYPES, 0, 10).moveNext());
+        assertFalse(store.query(Integer.MAX_VALUE, 0, 10).moveNext());
+    }
+
+    @Test
+    public void givenNewEvent_thenTypeIsInternedOnlyWhenItsIdIsAsked() {
+        int size = TypeDictionary.size();
+        Event event = new Event("dictionary type 7", 1);
+        assertEquals("dictionary type 7", event.type());
+        assertEquals(size, TypeDictionary.size());
+        assertNull(TypeDictionary.lookup("dictionary type 7"));
+
+        assertSame(TypeDictionary.intern("dictionary type 7"), event.eventType());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullType_thenEventIsRejected() {
+        new Event((String) null, 1);
+    }
+
+    @Test
+    public void givenManyTypes_thenTableGrows() {
+        TypeTable<String> table = new TypeTable<>();
+        for (int id = 0; id < 5000; id += 7) {
+            assertEquals("value " + id, table.computeIfAbsent(id, i -> "value " + i));
+        }
+        String value = table.get(4998);
+        assertEquals("value 4998", value);
+        assertNull(table.get(4999));
+        assertTrue(table.remove(4998, value));
+        assertNull(table.get(4998));
+        assertFalse(table.replace(4998, value, "other"));
+    }
+}
@@ -0,0 +1,59 @@
+package net.intelie.challenges;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void givenManyConcurrentReaders_thenAllOfThemComplete() throws Exception {
+        EventStoreLocked store = new EventStoreLocked();
+        for (int i = 0; i < 1000; i++) {
+            store.insert(new Event("type 1", i));
+        }
+        /* a platform thread per reader on JDKs without virtual threads */
+        int readers = VirtualThreads.available() ? 10_000 : 100;
+        AtomicLong received = new AtomicLong();
+
+        ExecutorService executorService = VirtualThreads.executor();
+        List<CompletableFuture<Long>> queries = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            long start = i % 900;
+            queries.add(store.queryAsync("type 1", start, start + 100, event -> received.incrementAndGet(),
+                    executorService));
+        }
+        for (CompletableFuture<Long> query : queries) {
+            assertEquals(100, (long) query.get(30, TimeUnit.SECONDS));
+        }
+        executorService.shutdown();
+
+        assertEquals(100L * readers, received.get());
+    }
+
+    @Test
+    public void givenListenerFails_thenQueryCompletesExceptionally() throws Exception {
+        EventStoreLocked store = new EventStoreLocked();
+        store.insert(new Event("type 1", 1));
+
+        ExecutorService executorService = VirtualThreads.executor();
+        CompletableFuture<Long> query = store.queryAsync("type 1", 0, 10, event -> {
+            throw new UnsupportedOperationException();
+        }, executorService);
+        try {
+            query.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+        executorService.shutdown();
+    }
+}